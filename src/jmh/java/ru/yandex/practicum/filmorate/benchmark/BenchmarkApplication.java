@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.db.DatabaseFilmStorage;
+
+import java.util.UUID;
+
+// Starts the application on a private in-memory H2 database seeded by DataGenerator,
+// without the web layer or with the embedded server on a random port
+public final class BenchmarkApplication {
+
+    public static final long SEED = 42;
+
+    private BenchmarkApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(int filmCount, int userCount, String... properties) {
+        return start(WebApplicationType.NONE, filmCount, userCount, properties);
+    }
+
+    // The port is available as the local.server.port property of the returned context
+    public static ConfigurableApplicationContext startServer(int filmCount, int userCount, String... properties) {
+        return start(WebApplicationType.SERVLET, filmCount, userCount, properties);
+    }
+
+    private static ConfigurableApplicationContext start(WebApplicationType webApplicationType, int filmCount,
+                                                        int userCount, String... properties) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(webApplicationType)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .properties("spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "logging.level.root=WARN", "server.port=0")
+                .properties(properties)
+                .run();
+
+        new DataGenerator(SEED).populate(context.getBean(JdbcTemplate.class), filmCount, userCount, 20, 30);
+        // The generator writes the tables directly, so the denormalized counters and the graphs are rebuilt
+        context.getBean(DatabaseFilmStorage.class).reconcileLikeCounts();
+        context.getBean(FilmService.class).loadLikeGraph();
+        context.getBean(UserService.class).loadFriendGraph();
+        return context;
+    }
+}
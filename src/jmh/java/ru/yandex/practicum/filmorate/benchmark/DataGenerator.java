@@ -0,0 +1,160 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.model.film.Mpa;
+import ru.yandex.practicum.filmorate.model.user.User;
+
+import java.time.LocalDate;
+import java.util.*;
+
+// Generates a catalog with power-law distributions: a few users are very active and a few films
+// (and users as friends) are very popular, like in real social data. The same seed gives the same data.
+public class DataGenerator {
+
+    private static final int BATCH_SIZE = 10_000;
+    static final int GENRE_COUNT = 6;
+    private static final int MPA_COUNT = 5;
+    // Pareto shape for the number of likes/friends per user and Zipf exponent for the choice of film/friend
+    private static final double ACTIVITY_SHAPE = 2.0;
+    private static final double POPULARITY_EXPONENT = 1.1;
+
+    private final Random random;
+
+    public DataGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public Film film(long id) {
+        Set<Genre> genres = new TreeSet<>();
+        int genreCount = random.nextInt(3);
+        for (int i = 0; i < genreCount; i++) {
+            genres.add(Genre.builder().id(1 + random.nextInt(GENRE_COUNT)).build());
+        }
+
+        return Film.builder()
+                .id(id)
+                .name("Film " + id)
+                .description("Description of film " + id)
+                .releaseDate(LocalDate.of(1950, 1, 1).plusDays(random.nextInt(25_000)))
+                .duration(60 + random.nextInt(120))
+                .mpa(Mpa.builder().id(1 + random.nextInt(MPA_COUNT)).build())
+                .genres(genres)
+                .build();
+    }
+
+    public User user(long id) {
+        return User.builder()
+                .id(id)
+                .email("user" + id + "@mail.ru")
+                .login("user" + id)
+                .name("User " + id)
+                .birthday(LocalDate.of(1960, 1, 1).plusDays(random.nextInt(15_000)))
+                .build();
+    }
+
+    // Ids are 1..filmCount and 1..userCount
+    public void populate(JdbcTemplate jdbcTemplate, int filmCount, int userCount,
+                         int averageLikesPerUser, int averageFriendsPerUser) {
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        for (long id = 1; id <= userCount; id++) {
+            User user = user(id);
+            rows.add(new Object[]{id, user.getEmail(), user.getLogin(), user.getName(), user.getBirthday()});
+            flushIfFull(jdbcTemplate, "INSERT INTO users (user_id, email, login, name, birthday) " +
+                    "VALUES (?, ?, ?, ?, ?)", rows);
+        }
+        flush(jdbcTemplate, "INSERT INTO users (user_id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)", rows);
+
+        // Genre rows reference the films, so they are written right after each batch of films
+        List<Object[]> genreRows = new ArrayList<>(BATCH_SIZE);
+        for (long id = 1; id <= filmCount; id++) {
+            Film film = film(id);
+            rows.add(new Object[]{id, film.getName(), film.getDescription(), film.getMpa().getId(),
+                    film.getReleaseDate(), film.getDuration()});
+            for (Genre genre : film.getGenres()) {
+                genreRows.add(new Object[]{id, genre.getId()});
+            }
+            if (rows.size() >= BATCH_SIZE) {
+                flushFilms(jdbcTemplate, rows, genreRows);
+            }
+        }
+        flushFilms(jdbcTemplate, rows, genreRows);
+
+        ZipfSampler films = new ZipfSampler(filmCount);
+        ZipfSampler users = new ZipfSampler(userCount);
+        for (long userId = 1; userId <= userCount; userId++) {
+            for (long filmId : sample(films, activity(averageLikesPerUser, filmCount), -1)) {
+                rows.add(new Object[]{filmId, userId});
+                flushIfFull(jdbcTemplate, "INSERT INTO film_like (film_id, user_id) VALUES (?, ?)", rows);
+            }
+        }
+        flush(jdbcTemplate, "INSERT INTO film_like (film_id, user_id) VALUES (?, ?)", rows);
+
+        for (long userId = 1; userId <= userCount; userId++) {
+            for (long friendId : sample(users, activity(averageFriendsPerUser, userCount - 1), userId)) {
+                rows.add(new Object[]{userId, friendId});
+                flushIfFull(jdbcTemplate, "INSERT INTO user_friend (user_id, friend_id) VALUES (?, ?)", rows);
+            }
+        }
+        flush(jdbcTemplate, "INSERT INTO user_friend (user_id, friend_id) VALUES (?, ?)", rows);
+    }
+
+    // Pareto-distributed count with the given mean
+    private int activity(int mean, int max) {
+        double scale = mean * (ACTIVITY_SHAPE - 1) / ACTIVITY_SHAPE;
+        double value = scale / Math.pow(1 - random.nextDouble(), 1 / ACTIVITY_SHAPE);
+        return (int) Math.min(max, Math.round(value));
+    }
+
+    private Set<Long> sample(ZipfSampler sampler, int count, long excludedId) {
+        Set<Long> ids = new HashSet<>();
+        // The most popular ids repeat often, so the number of attempts is bounded
+        for (int attempt = 0; ids.size() < count && attempt < count * 10; attempt++) {
+            long id = sampler.next();
+            if (id != excludedId) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private void flushFilms(JdbcTemplate jdbcTemplate, List<Object[]> filmRows, List<Object[]> genreRows) {
+        flush(jdbcTemplate, "INSERT INTO film (film_id, name, description, mpa_id, release_date, duration) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", filmRows);
+        flush(jdbcTemplate, "INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)", genreRows);
+    }
+
+    private void flushIfFull(JdbcTemplate jdbcTemplate, String query, List<Object[]> rows) {
+        if (rows.size() >= BATCH_SIZE) {
+            flush(jdbcTemplate, query, rows);
+        }
+    }
+
+    private void flush(JdbcTemplate jdbcTemplate, String query, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(query, rows);
+            rows.clear();
+        }
+    }
+
+    // Rank k (1-based id) is chosen with probability proportional to 1 / k^exponent
+    private class ZipfSampler {
+        private final double[] cumulative;
+
+        ZipfSampler(int size) {
+            cumulative = new double[size];
+            double sum = 0;
+            for (int rank = 1; rank <= size; rank++) {
+                sum += 1 / Math.pow(rank, POPULARITY_EXPONENT);
+                cumulative[rank - 1] = sum;
+            }
+        }
+
+        long next() {
+            double point = random.nextDouble() * cumulative[cumulative.length - 1];
+            int index = Arrays.binarySearch(cumulative, point);
+            return (index >= 0 ? index : -index - 1) + 1;
+        }
+    }
+}
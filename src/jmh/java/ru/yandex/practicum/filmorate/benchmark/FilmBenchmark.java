@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.db.DatabaseFilmStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmBenchmark {
+
+    // Films and users; pass -p size=1000000 for the largest catalog
+    @Param({"1000", "100000"})
+    private int size;
+
+    private ConfigurableApplicationContext context;
+    private FilmService filmService;
+    private DatabaseFilmStorage filmStorage;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkApplication.start(size, size);
+        filmService = context.getBean(FilmService.class);
+        filmStorage = context.getBean(DatabaseFilmStorage.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Collection<Film> getTop() {
+        return filmService.getTop(null, null, 0, 10);
+    }
+
+    @Benchmark
+    public Collection<Film> getTopByGenre() {
+        return filmService.getTop(randomGenreId(), null, 0, 10);
+    }
+
+    @Benchmark
+    public Collection<Film> getTopByYear() {
+        return filmService.getTop(null, randomYear(), 0, 10);
+    }
+
+    @Benchmark
+    public Collection<Film> getTopByGenreAndYear() {
+        return filmService.getTop(randomGenreId(), randomYear(), 0, 10);
+    }
+
+    @Benchmark
+    public Collection<Film> getRecommendations() {
+        return filmService.getRecommendations(randomId(), 10);
+    }
+
+    @Benchmark
+    public Film getById() {
+        return filmService.getById(randomId());
+    }
+
+    @Benchmark
+    public Collection<Film> getPage() {
+        return filmService.getPage(randomId(), 100);
+    }
+
+    @Benchmark
+    public List<Film> findAll() {
+        return filmStorage.findAll();
+    }
+
+    private long randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(size);
+    }
+
+    private int randomGenreId() {
+        return 1 + ThreadLocalRandom.current().nextInt(DataGenerator.GENRE_COUNT);
+    }
+
+    // Release dates are generated between 1950 and 2018
+    private int randomYear() {
+        return 1950 + ThreadLocalRandom.current().nextInt(69);
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Load through the embedded server: every operation sends `clients` requests at once and waits for all
+// of them, so far more requests are in flight than Tomcat has threads. The virtualThreads=true trial
+// needs Java 21: mvn -P jmh,java21 test-compile exec:exec -Djmh.args="HttpLoadBenchmark"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class HttpLoadBenchmark {
+
+    @Param({"1000"})
+    private int size;
+
+    @Param({"1000"})
+    private int clients;
+
+    @Param({"false", "true"})
+    private boolean virtualThreads;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkApplication.startServer(size, size,
+                "filmorate.virtual-threads.enabled=" + virtualThreads,
+                "server.tomcat.max-connections=" + (clients + 100));
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // Friend lists are read from the database on every request, the popular films from the index
+    @Benchmark
+    public int concurrentReads() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[clients];
+        for (int i = 0; i < clients; i++) {
+            String path = random.nextBoolean()
+                    ? "/users/" + (1 + random.nextInt(size)) + "/friends"
+                    : "/films/popular?count=10";
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).build();
+            responses[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .thenAccept(response -> {
+                        if (response.statusCode() != 200) {
+                            throw new IllegalStateException(path + ": " + response.statusCode());
+                        }
+                    });
+        }
+        CompletableFuture.allOf(responses).join();
+        return responses.length;
+    }
+}
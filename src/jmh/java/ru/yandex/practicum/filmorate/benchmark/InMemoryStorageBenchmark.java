@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.storage.film.mem.InMemoryFilmStorage;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// BaseInMemoryStorage operations through InMemoryFilmStorage
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InMemoryStorageBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    private InMemoryFilmStorage storage;
+    private Film[] films;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        DataGenerator generator = new DataGenerator(BenchmarkApplication.SEED);
+        storage = new InMemoryFilmStorage();
+        films = new Film[size];
+        for (int i = 0; i < size; i++) {
+            films[i] = generator.film(i + 1);
+            storage.add(films[i]);
+        }
+    }
+
+    @Benchmark
+    public Optional<Film> findById() {
+        return storage.findById(randomId());
+    }
+
+    @Benchmark
+    public List<Film> findPage() {
+        return storage.findPage(randomId(), 100);
+    }
+
+    @Benchmark
+    public void update() {
+        storage.update(films[(int) randomId() - 1]);
+    }
+
+    @Benchmark
+    public List<Film> getTop() {
+        return storage.findPopular(null, null, 0, 10);
+    }
+
+    // Readers and a writer on the same storage
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public Optional<Film> contendedFindById() {
+        return storage.findById(randomId());
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public boolean contendedAddLike() {
+        return storage.addLike(randomId(), randomId());
+    }
+
+    private long randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(size);
+    }
+}
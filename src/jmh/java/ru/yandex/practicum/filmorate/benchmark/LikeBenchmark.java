@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// A like storm: many users like and unlike a handful of premiere films at once
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class LikeBenchmark {
+
+    private static final int PREMIERE_FILMS = 5;
+
+    @Param({"1000"})
+    private int size;
+
+    @Param({"false", "true"})
+    private boolean async;
+
+    private ConfigurableApplicationContext context;
+    private FilmService filmService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkApplication.start(size, size, "filmorate.likes.async.enabled=" + async);
+        filmService = context.getBean(FilmService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void likeOrUnlike() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long filmId = 1 + random.nextInt(PREMIERE_FILMS);
+        long userId = 1 + random.nextInt(size);
+        if (random.nextInt(4) == 0) {
+            filmService.removeLike(filmId, userId);
+        } else {
+            filmService.addLike(filmId, userId);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Reverse lookups and genre/MPA filtering with and without the indexes of migration V5.
+// Query plans are printed on setup, so the output shows which index each query uses.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReverseLookupBenchmark {
+
+    private static final String FILMS_LIKED_BY_USER = "SELECT film_id FROM film_like WHERE user_id = ?";
+    private static final String USERS_WITH_FRIEND = "SELECT user_id FROM user_friend WHERE friend_id = ?";
+    private static final String FILMS_BY_GENRE = "SELECT film_id FROM film_genre WHERE genre_id = ? " +
+            "ORDER BY film_id LIMIT 100";
+    private static final String FILMS_BY_MPA = "SELECT film_id FROM film WHERE mpa_id = ? ORDER BY film_id LIMIT 100";
+
+    private static final List<String> V5_INDEXES = List.of("film_like_user_idx", "user_friend_friend_idx",
+            "film_genre_genre_idx", "film_mpa_idx");
+
+    @Param({"10000", "100000"})
+    private int size;
+
+    @Param({"true", "false"})
+    private boolean indexed;
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkApplication.start(size, size);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        if (!indexed) {
+            V5_INDEXES.forEach(index -> jdbcTemplate.execute("DROP INDEX IF EXISTS " + index));
+        }
+        jdbcTemplate.execute("ANALYZE");
+
+        printPlan(FILMS_LIKED_BY_USER, 1);
+        printPlan(USERS_WITH_FRIEND, 1);
+        printPlan(FILMS_BY_GENRE, 1);
+        printPlan(FILMS_BY_MPA, 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Long> filmsLikedByUser() {
+        return jdbcTemplate.queryForList(FILMS_LIKED_BY_USER, Long.class, randomId());
+    }
+
+    @Benchmark
+    public List<Long> usersWithFriend() {
+        return jdbcTemplate.queryForList(USERS_WITH_FRIEND, Long.class, randomId());
+    }
+
+    @Benchmark
+    public List<Long> filmsByGenre() {
+        return jdbcTemplate.queryForList(FILMS_BY_GENRE, Long.class, 1 + ThreadLocalRandom.current().nextInt(6));
+    }
+
+    @Benchmark
+    public List<Long> filmsByMpa() {
+        return jdbcTemplate.queryForList(FILMS_BY_MPA, Long.class, 1 + ThreadLocalRandom.current().nextInt(5));
+    }
+
+    private void printPlan(String query, Object... args) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + query, String.class, args);
+        System.out.printf("%n# Plan (indexed = %s): %s%n%s%n", indexed, query, plan);
+    }
+
+    private long randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(size);
+    }
+}
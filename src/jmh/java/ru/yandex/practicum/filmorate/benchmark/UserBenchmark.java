@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserBenchmark {
+
+    // Films and users; pass -p size=1000000 for the largest catalog
+    @Param({"1000", "100000"})
+    private int size;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkApplication.start(size, size);
+        userService = context.getBean(UserService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // Low ids are the most popular friends, so both a hub and a random user are measured
+    @Benchmark
+    public Collection<User> getCommonFriendsWithPopularUser() {
+        return userService.getCommonFriends(1L, randomId());
+    }
+
+    @Benchmark
+    public Collection<User> getCommonFriends() {
+        return userService.getCommonFriends(randomId(), randomId());
+    }
+
+    @Benchmark
+    public Collection<User> getFriends() {
+        return userService.getFriendsByUserId(randomId());
+    }
+
+    @Benchmark
+    public Collection<User> getFriendSuggestions() {
+        return userService.getFriendSuggestions(randomId(), 10);
+    }
+
+    private long randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(size);
+    }
+}
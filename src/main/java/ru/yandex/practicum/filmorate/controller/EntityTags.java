@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+import ru.yandex.practicum.filmorate.exception.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.model.BaseEntity;
+import ru.yandex.practicum.filmorate.model.Versioned;
+import ru.yandex.practicum.filmorate.storage.DataVersion;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+// Validators for GET responses. A ResponseEntity with an ETag or Last-Modified header
+// is answered with 304 by Spring MVC when If-None-Match or If-Modified-Since match,
+// the body is then not serialized.
+final class EntityTags {
+
+    // Never equal to a stored version, so a malformed If-Match fails the precondition
+    private static final long UNKNOWN_VERSION = -1;
+
+    // Reference data changes only with migrations, clients revalidate by ETag after a day
+    private static final CacheControl REFERENCE_CACHE_CONTROL = CacheControl.maxAge(1, TimeUnit.DAYS).cachePublic();
+
+    private EntityTags() {
+    }
+
+    // Entity versions are exposed as strong ETags ("3") and read back from If-Match
+    static <E extends Versioned> ResponseEntity<E> withETag(E entity) {
+        return ResponseEntity.ok()
+                .eTag(Long.toString(entity.getVersion()))
+                .body(entity);
+    }
+
+    // A list of entities changes when its order or the version of any of them changes
+    static <E extends BaseEntity<?> & Versioned, C extends Collection<E>> ResponseEntity<C> withContentETag(C entities) {
+        StringBuilder content = new StringBuilder();
+        entities.forEach(entity -> content.append(entity.getId()).append(':').append(entity.getVersion()).append(','));
+        return ResponseEntity.ok()
+                .eTag(DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8)))
+                .body(entities);
+    }
+
+    static <T> ResponseEntity<T> withReferenceCaching(DataVersion version, T body) {
+        return ResponseEntity.ok()
+                .eTag(version.getETag())
+                .lastModified(version.getLastModified())
+                .cacheControl(REFERENCE_CACHE_CONTROL)
+                .body(body);
+    }
+
+    // An absent header or "*" means no precondition. If-Match uses the strong comparison (RFC 7232, 3.1),
+    // so a weak tag never matches; the weak comparison of If-None-Match is left to Spring MVC.
+    static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            throw new PreconditionFailedException(
+                    String.format("Слабый ETag %s не может быть использован в If-Match", tag));
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException ex) {
+            return UNKNOWN_VERSION;
+        }
+    }
+}
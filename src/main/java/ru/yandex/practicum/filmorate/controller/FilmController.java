@@ -1,13 +1,21 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.service.BulkImportResult;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
 
 @Validated
@@ -16,26 +24,49 @@ import java.util.Collection;
 @RequestMapping("/films")
 public class FilmController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final FilmService filmService;
+    private final JsonArrayStreamer jsonArrayStreamer;
 
     @PostMapping
     public Film create(@Valid @RequestBody Film film) {
         return filmService.create(film);
     }
 
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public BulkImportResult importAll(InputStream body) throws IOException {
+        return filmService.importAll(body);
+    }
+
     @PutMapping
-    public Film update(@Valid @RequestBody Film film) {
-        return filmService.update(film);
+    public ResponseEntity<Film> update(@Valid @RequestBody Film film,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return EntityTags.withETag(filmService.update(film, EntityTags.parseIfMatch(ifMatch)));
     }
 
     @GetMapping
-    public Collection<Film> getAll() {
-        return filmService.getAll();
+    public Collection<Film> getAll(@RequestParam(required = false)
+                                   @Min(value = 1, message = "Значение limit должно быть положительным")
+                                   @Max(value = MAX_PAGE_SIZE, message = "Значение limit не может быть больше 1000")
+                                   Integer limit,
+                                   @RequestParam(defaultValue = "0") Long after) {
+        if (limit == null) {
+            return filmService.getAll();
+        }
+        return filmService.getPage(after, limit);
+    }
+
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(jsonArrayStreamer.stream(filmService::streamAll));
     }
 
     @GetMapping("/{id}")
-    public Film getById(@PathVariable("id") Long filmId) {
-        return filmService.getById(filmId);
+    public ResponseEntity<Film> getById(@PathVariable("id") Long filmId) {
+        return EntityTags.withETag(filmService.getById(filmId));
     }
 
     @PutMapping("/{id}/like/{userId}")
@@ -49,9 +80,16 @@ public class FilmController {
     }
 
     @GetMapping("/popular")
-    public Collection<Film> getTop(@RequestParam(defaultValue = "10")
-                                   @Min(value = 1, message = "Значение count должно быть положительным")
-                                   Integer count) {
-        return filmService.getTop(count);
+    public ResponseEntity<Collection<Film>> getTop(@RequestParam(defaultValue = "10")
+                                                   @Min(value = 1, message = "Значение count должно быть положительным")
+                                                   @Max(value = MAX_PAGE_SIZE,
+                                                           message = "Значение count не может быть больше 1000")
+                                                   Integer count,
+                                                   @RequestParam(defaultValue = "0")
+                                                   @Min(value = 0, message = "Значение offset не может быть отрицательным")
+                                                   Integer offset,
+                                                   @RequestParam(required = false) Integer genreId,
+                                                   @RequestParam(required = false) Integer year) {
+        return EntityTags.withContentETag(filmService.getTop(genreId, year, offset, count));
     }
 }
@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -18,12 +19,12 @@ public class GenreController {
     private final FilmService filmService;
 
     @GetMapping
-    public Collection<Genre> getAll() {
-        return filmService.getAllGenres();
+    public ResponseEntity<Collection<Genre>> getAll() {
+        return EntityTags.withReferenceCaching(filmService.getGenresVersion(), filmService.getAllGenres());
     }
 
     @GetMapping("/{id}")
-    public Genre getById(@PathVariable("id") Integer genreId) {
-        return filmService.getGenreById(genreId);
+    public ResponseEntity<Genre> getById(@PathVariable("id") Integer genreId) {
+        return EntityTags.withReferenceCaching(filmService.getGenresVersion(), filmService.getGenreById(genreId));
     }
 }
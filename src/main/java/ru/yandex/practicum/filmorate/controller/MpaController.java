@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -18,12 +19,12 @@ public class MpaController {
     private final FilmService filmService;
 
     @GetMapping
-    public Collection<Mpa> getAll() {
-        return filmService.getAllMpa();
+    public ResponseEntity<Collection<Mpa>> getAll() {
+        return EntityTags.withReferenceCaching(filmService.getMpaVersion(), filmService.getAllMpa());
     }
 
     @GetMapping("/{id}")
-    public Mpa getById(@PathVariable("id") Integer mpaId) {
-        return filmService.getMpaById(mpaId);
+    public ResponseEntity<Mpa> getById(@PathVariable("id") Integer mpaId) {
+        return EntityTags.withReferenceCaching(filmService.getMpaVersion(), filmService.getMpaById(mpaId));
     }
 }
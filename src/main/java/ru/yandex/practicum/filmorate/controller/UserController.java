@@ -1,38 +1,75 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.film.Film;
 import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.service.BulkImportResult;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
 
+@Validated
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/users")
 public class UserController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final UserService userService;
+    private final FilmService filmService;
+    private final JsonArrayStreamer jsonArrayStreamer;
 
     @PostMapping
     public User create(@Valid @RequestBody User user) {
         return userService.create(user);
     }
 
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public BulkImportResult importAll(InputStream body) throws IOException {
+        return userService.importAll(body);
+    }
+
     @PutMapping
-    public User update(@Valid @RequestBody User user) {
-        return userService.update(user);
+    public ResponseEntity<User> update(@Valid @RequestBody User user,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return EntityTags.withETag(userService.update(user, EntityTags.parseIfMatch(ifMatch)));
     }
 
     @GetMapping
-    public Collection<User> getAll() {
-        return userService.getAll();
+    public Collection<User> getAll(@RequestParam(required = false)
+                                   @Min(value = 1, message = "Значение limit должно быть положительным")
+                                   @Max(value = MAX_PAGE_SIZE, message = "Значение limit не может быть больше 1000")
+                                   Integer limit,
+                                   @RequestParam(defaultValue = "0") Long after) {
+        if (limit == null) {
+            return userService.getAll();
+        }
+        return userService.getPage(after, limit);
+    }
+
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(jsonArrayStreamer.stream(userService::streamAll));
     }
 
     @GetMapping("/{id}")
-    public User getById(@PathVariable("id") Long userId) {
-        return userService.getById(userId);
+    public ResponseEntity<User> getById(@PathVariable("id") Long userId) {
+        return EntityTags.withETag(userService.getById(userId));
     }
 
     @PutMapping("/{id}/friends/{friendId}")
@@ -50,6 +87,26 @@ public class UserController {
         return userService.getFriendsByUserId(userId);
     }
 
+    @GetMapping("/{id}/friends/suggestions")
+    public Collection<User> getFriendSuggestions(@PathVariable("id") Long userId,
+                                                 @RequestParam(defaultValue = "10")
+                                                 @Min(value = 1, message = "Значение count должно быть положительным")
+                                                 @Max(value = MAX_PAGE_SIZE,
+                                                         message = "Значение count не может быть больше 1000")
+                                                 Integer count) {
+        return userService.getFriendSuggestions(userId, count);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public Collection<Film> getRecommendations(@PathVariable("id") Long userId,
+                                               @RequestParam(defaultValue = "10")
+                                               @Min(value = 1, message = "Значение count должно быть положительным")
+                                               @Max(value = MAX_PAGE_SIZE,
+                                                       message = "Значение count не может быть больше 1000")
+                                               Integer count) {
+        return filmService.getRecommendations(userId, count);
+    }
+
     @GetMapping("/{id}/friends/common/{otherId}")
     public Collection<User> getCommonFriends(@PathVariable("id") Long firstUserId,
                                              @PathVariable("otherId") Long secondUserId) {
@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.exception;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -42,6 +43,30 @@ public class RestExceptionHandler {
         return new RestException(message, ex.getCause(), HttpStatus.BAD_REQUEST);
     }
 
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(value = {OptimisticLockingFailureException.class})
+    public RestException handleOptimisticLockingFailureException(OptimisticLockingFailureException ex) {
+        String message = ex.getMessage();
+        log.info(message);
+        return new RestException(message, ex.getCause(), HttpStatus.CONFLICT);
+    }
+
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    @ExceptionHandler(value = {PreconditionFailedException.class})
+    public RestException handlePreconditionFailedException(PreconditionFailedException ex) {
+        String message = ex.getMessage();
+        log.info(message);
+        return new RestException(message, ex.getCause(), HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(value = {LikeQueueFullException.class})
+    public RestException handleLikeQueueFullException(LikeQueueFullException ex) {
+        String message = ex.getMessage();
+        log.warn(message);
+        return new RestException(message, ex.getCause(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ResponseStatus(HttpStatus.NOT_FOUND)
     @ExceptionHandler(value = {IllegalArgumentException.class})
     public RestException handleIllegalArgumentException(IllegalArgumentException ex) {
@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+// Counts statements executed by the thread serving an HTTP request.
+// Statements outside a request (scheduled jobs, startup, streamed responses) are not counted.
+final class DbRoundTrips {
+
+    private static final ThreadLocal<int[]> COUNTER = new ThreadLocal<>();
+
+    private DbRoundTrips() {
+    }
+
+    static void start() {
+        COUNTER.set(new int[1]);
+    }
+
+    static void increment() {
+        int[] counter = COUNTER.get();
+        if (counter != null) {
+            counter[0]++;
+        }
+    }
+
+    // Returns -1 when counting was not started on this thread
+    static int current() {
+        int[] counter = COUNTER.get();
+        return counter == null ? -1 : counter[0];
+    }
+
+    static int stop() {
+        int current = current();
+        COUNTER.remove();
+        return current;
+    }
+}
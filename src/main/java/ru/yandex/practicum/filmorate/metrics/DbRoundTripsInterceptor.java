@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.ModelAndView;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+// Records how many statements each request executed, per endpoint. A growing count for
+// the same endpoint is an N+1 regression even when the latency is still fine.
+// The count is also left in a request attribute for tests and checked against the SQL budget.
+@RequiredArgsConstructor
+public class DbRoundTripsInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String STATEMENT_COUNT_ATTRIBUTE = DbRoundTripsInterceptor.class.getName() + ".statements";
+
+    static final String ROUND_TRIPS_SUMMARY = "filmorate.http.db.round.trips";
+
+    private static final String UNKNOWN_URI = "UNKNOWN";
+
+    private final MeterRegistry registry;
+    private final SqlBudgetGuard budgetGuard;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // The async dispatch of a streamed response was already counted by the initial one
+        if (request.getDispatcherType() != DispatcherType.ASYNC) {
+            DbRoundTrips.start();
+        }
+        return true;
+    }
+
+    // The body of a REST response is already written here: in FAIL mode MockMvc rethrows the exception,
+    // a server only logs it
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                           ModelAndView modelAndView) {
+        int statements = DbRoundTrips.current();
+        if (statements >= 0) {
+            budgetGuard.checkRequest(request.getMethod(), uriPattern(request), statements);
+        }
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        record(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        record(request);
+    }
+
+    private void record(HttpServletRequest request) {
+        int roundTrips = DbRoundTrips.stop();
+        if (roundTrips < 0) {
+            return;
+        }
+
+        request.setAttribute(STATEMENT_COUNT_ATTRIBUTE, roundTrips);
+        DistributionSummary.builder(ROUND_TRIPS_SUMMARY)
+                .baseUnit("calls")
+                .tag("method", request.getMethod())
+                .tag("uri", uriPattern(request))
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(1000.0)
+                .register(registry)
+                .record(roundTrips);
+    }
+
+    private static String uriPattern(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern == null ? UNKNOWN_URI : pattern.toString();
+    }
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.film.cache.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.cache.CachingUserStorage;
+
+import javax.annotation.PostConstruct;
+
+// cache.gets (hit/miss), cache.evictions and cache.size of the film and user caches.
+// Bound after the registry is created for the same reason as ReferenceCacheMetrics.
+@Component
+@RequiredArgsConstructor
+public class EntityCacheMetrics {
+
+    private final MeterRegistry registry;
+    private final CachingFilmStorage filmStorage;
+    private final CachingUserStorage userStorage;
+
+    @PostConstruct
+    public void bind() {
+        CaffeineCacheMetrics.monitor(registry, filmStorage.getCache().getCache(), "films");
+        CaffeineCacheMetrics.monitor(registry, userStorage.getCache().getCache(), "users");
+    }
+}
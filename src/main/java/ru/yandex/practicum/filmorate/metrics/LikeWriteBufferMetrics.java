@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.service.LikeWriteBuffer;
+
+import javax.annotation.PostConstruct;
+
+@Component
+@RequiredArgsConstructor
+public class LikeWriteBufferMetrics {
+
+    static final String FAILED_FLUSH_COUNTER = "filmorate.likes.async.flush.failures";
+    static final String DROPPED_LIKE_COUNTER = "filmorate.likes.async.dropped";
+
+    private final MeterRegistry registry;
+    private final LikeWriteBuffer likeWriteBuffer;
+
+    @PostConstruct
+    public void bind() {
+        FunctionCounter.builder(FAILED_FLUSH_COUNTER, likeWriteBuffer, LikeWriteBuffer::getFailedFlushCount)
+                .register(registry);
+        FunctionCounter.builder(DROPPED_LIKE_COUNTER, likeWriteBuffer, LikeWriteBuffer::getDroppedLikeCount)
+                .register(registry);
+    }
+}
@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+// Times every public method of the storages and services and every JdbcTemplate call.
+// JDBC timers are tagged with the storage method that issued the statement, so a slow or
+// chatty storage operation is visible without tagging by SQL text.
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class MetricsAspect {
+
+    static final String STORAGE_TIMER = "filmorate.storage";
+    static final String SERVICE_TIMER = "filmorate.service";
+    static final String JDBC_TIMER = "filmorate.jdbc";
+
+    private static final String NONE = "none";
+
+    // Storage method running on the current thread, storages calling each other restore the outer one
+    private static final ThreadLocal<String> CURRENT_STORAGE_METHOD = new ThreadLocal<>();
+
+    private final MeterRegistry registry;
+
+    @Around("execution(public * *(..)) && within(ru.yandex.practicum.filmorate.storage..*)"
+            + " && target(ru.yandex.practicum.filmorate.storage.Storage)")
+    public Object timeStorage(ProceedingJoinPoint joinPoint) throws Throwable {
+        String storage = ClassUtils.getUserClass(joinPoint.getTarget()).getSimpleName();
+        String method = joinPoint.getSignature().getName();
+        String outer = CURRENT_STORAGE_METHOD.get();
+        CURRENT_STORAGE_METHOD.set(storage + "." + method);
+        try {
+            return time(joinPoint, STORAGE_TIMER, Tags.of("storage", storage, "method", method));
+        } finally {
+            if (outer == null) {
+                CURRENT_STORAGE_METHOD.remove();
+            } else {
+                CURRENT_STORAGE_METHOD.set(outer);
+            }
+        }
+    }
+
+    @Around("execution(public * *(..)) && within(ru.yandex.practicum.filmorate.service..*)")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        String service = ClassUtils.getUserClass(joinPoint.getTarget()).getSimpleName();
+        String method = joinPoint.getSignature().getName();
+        return time(joinPoint, SERVICE_TIMER, Tags.of("service", service, "method", method));
+    }
+
+    // JdbcTemplate calls its own overloads directly, so each API call is timed once
+    @Around("execution(* org.springframework.jdbc.core.JdbcOperations.*(..))"
+            + " && target(org.springframework.jdbc.core.JdbcTemplate)")
+    public Object timeJdbc(ProceedingJoinPoint joinPoint) throws Throwable {
+        String caller = CURRENT_STORAGE_METHOD.get();
+        return time(joinPoint, JDBC_TIMER, Tags.of(
+                "operation", joinPoint.getSignature().getName(),
+                "caller", caller == null ? NONE : caller));
+    }
+
+    private Object time(ProceedingJoinPoint joinPoint, String name, Tags tags) throws Throwable {
+        Timer.Sample sample = Timer.start(registry);
+        String exception = NONE;
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable ex) {
+            exception = ex.getClass().getSimpleName();
+            throw ex;
+        } finally {
+            sample.stop(registry.timer(name, tags.and("exception", exception)));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.ReferenceCache;
+import ru.yandex.practicum.filmorate.storage.film.db.DatabaseGenreStorage;
+import ru.yandex.practicum.filmorate.storage.film.db.DatabaseMpaStorage;
+
+import javax.annotation.PostConstruct;
+
+// Not a MeterBinder: binders are applied while the registry is created, and the storages
+// can't be created before it because MetricsAspect advises them
+@Component
+@RequiredArgsConstructor
+public class ReferenceCacheMetrics {
+
+    static final String REFERENCE_CACHE_COUNTER = "filmorate.reference.cache.requests";
+
+    private final MeterRegistry registry;
+    private final DatabaseGenreStorage genreStorage;
+    private final DatabaseMpaStorage mpaStorage;
+
+    @PostConstruct
+    public void bind() {
+        bind("genre", genreStorage.getCache());
+        bind("mpa", mpaStorage.getCache());
+    }
+
+    private void bind(String name, ReferenceCache<?> cache) {
+        FunctionCounter.builder(REFERENCE_CACHE_COUNTER, cache, ReferenceCache::getHitCount)
+                .tag("cache", name)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder(REFERENCE_CACHE_COUNTER, cache, ReferenceCache::getMissCount)
+                .tag("cache", name)
+                .tag("result", "miss")
+                .register(registry);
+    }
+}
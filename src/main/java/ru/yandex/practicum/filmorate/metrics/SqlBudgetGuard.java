@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.exception.SqlBudgetExceededException;
+
+// Counts executed statements per request and per transaction and compares them with the budgets
+// from SqlBudgetProperties. In FAIL mode a transaction over budget is rolled back, a request over
+// budget fails after its handler returned.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SqlBudgetGuard {
+
+    private final SqlBudgetProperties properties;
+
+    // Called by StatementCountingDataSource for every executed statement
+    void statementExecuted() {
+        DbRoundTrips.increment();
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && TransactionSynchronizationManager.isActualTransactionActive()) {
+            currentTransaction().statements++;
+        }
+    }
+
+    void checkRequest(String method, String uri, int statements) {
+        check(properties.getRequests().get(uri), statements, "Запрос " + method + " " + uri);
+    }
+
+    // Looked up among the registered synchronizations, so a suspended outer transaction keeps its own counter
+    private TransactionCounter currentTransaction() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof TransactionCounter) {
+                return (TransactionCounter) synchronization;
+            }
+        }
+        TransactionCounter counter =
+                new TransactionCounter(shortName(TransactionSynchronizationManager.getCurrentTransactionName()));
+        TransactionSynchronizationManager.registerSynchronization(counter);
+        return counter;
+    }
+
+    private void check(Integer budget, int statements, String subject) {
+        if (budget == null || statements <= budget || properties.getMode() == SqlBudgetProperties.Mode.OFF) {
+            return;
+        }
+
+        if (properties.getMode() == SqlBudgetProperties.Mode.FAIL) {
+            throw new SqlBudgetExceededException("%s: выполнено SQL-запросов %d при бюджете %d",
+                    subject, statements, budget);
+        }
+        log.warn("{}: выполнено SQL-запросов {} при бюджете {}", subject, statements, budget);
+    }
+
+    // ru.yandex...DatabaseFilmStorage.addAll -> DatabaseFilmStorage.addAll
+    private static String shortName(String transactionName) {
+        if (transactionName == null) {
+            return "";
+        }
+        int methodStart = transactionName.lastIndexOf('.');
+        int classStart = methodStart > 0 ? transactionName.lastIndexOf('.', methodStart - 1) : -1;
+        return transactionName.substring(classStart + 1);
+    }
+
+    private class TransactionCounter implements TransactionSynchronization {
+        private final String name;
+        private int statements;
+
+        TransactionCounter(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            check(properties.getTransactions().get(name), statements, "Транзакция " + name);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// filmorate.sql-budget.requests.[/films/popular]=3 limits the statements of a request by its URI pattern
+// (for all HTTP methods), filmorate.sql-budget.transactions.[DatabaseFilmStorage.addAll]=5 limits
+// the statements of a transaction by the class and method that started it.
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("filmorate.sql-budget")
+public class SqlBudgetProperties {
+
+    public enum Mode {
+        OFF,
+        LOG,
+        FAIL
+    }
+
+    private Mode mode = Mode.LOG;
+    private Map<String, Integer> requests = new HashMap<>();
+    private Map<String, Integer> transactions = new HashMap<>();
+}
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Reports every statement execution, whatever issued it: JdbcTemplate, JPA or a batch.
+// A batch is one execution, it is sent to the database in one round trip.
+public class StatementCountingDataSource extends DelegatingDataSource {
+
+    private final Runnable listener;
+
+    public StatementCountingDataSource(DataSource dataSource, Runnable listener) {
+        super(dataSource);
+        this.listener = listener;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrapConnection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrapConnection(super.getConnection(username, password));
+    }
+
+    private Connection wrapConnection(Connection connection) {
+        return proxy(Connection.class, connection, (method, result) -> {
+            String name = method.getName();
+            if (result instanceof Statement && (name.equals("createStatement")
+                    || name.equals("prepareStatement") || name.equals("prepareCall"))) {
+                return wrapStatement((Statement) result);
+            }
+            return result;
+        });
+    }
+
+    private Statement wrapStatement(Statement statement) {
+        // The proxy implements the most specific JDBC interface of the statement, so casts to
+        // PreparedStatement or CallableStatement keep working
+        return proxy(statementInterface(statement), statement, (method, result) -> {
+            if (method.getName().startsWith("execute")) {
+                listener.run();
+            }
+            return result;
+        });
+    }
+
+    private static Class<? extends Statement> statementInterface(Statement statement) {
+        if (statement instanceof CallableStatement) {
+            return CallableStatement.class;
+        }
+        if (statement instanceof PreparedStatement) {
+            return PreparedStatement.class;
+        }
+        return Statement.class;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<? extends T> type, T target, ResultMapper mapper) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    try {
+                        return mapper.map(method, method.invoke(target, args));
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getTargetException();
+                    }
+            }
+        };
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private interface ResultMapper {
+        Object map(Method method, Object result) throws SQLException;
+    }
+}
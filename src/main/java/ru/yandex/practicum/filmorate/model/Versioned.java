@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.model;
+
+// Entity with a version that storages increment on every update and check against concurrent changes
+public interface Versioned {
+    long getVersion();
+
+    void setVersion(long version);
+}
@@ -5,11 +5,12 @@ import lombok.*;
 import lombok.experimental.FieldDefaults;
 import lombok.experimental.SuperBuilder;
 import ru.yandex.practicum.filmorate.model.BaseEntity;
+import ru.yandex.practicum.filmorate.model.Versioned;
+import ru.yandex.practicum.filmorate.util.LongSet;
 import ru.yandex.practicum.filmorate.validation.DateAfterOrEqual;
 
 import javax.validation.constraints.*;
 import java.time.LocalDate;
-import java.util.HashSet;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -18,7 +19,7 @@ import java.util.TreeSet;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @SuperBuilder
 @NoArgsConstructor
-public class Film extends BaseEntity<Long> {
+public class Film extends BaseEntity<Long> implements Versioned {
     @NotBlank(message = "Название не может быть пустым")
     String name;
     @Size(max = 200, message = "Максимальная длина описания — 200 символов")
@@ -33,5 +34,23 @@ public class Film extends BaseEntity<Long> {
     Mpa mpa;
     @Builder.Default
     @JsonIgnore
-    Set<Long> likes = new HashSet<>();
+    LongSet likes = LongSet.empty();
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    long version;
+
+    // Genres are the only mutable association, likes are an immutable set
+    public Film copy() {
+        return Film.builder()
+                .id(getId())
+                .name(name)
+                .description(description)
+                .releaseDate(releaseDate)
+                .duration(duration)
+                .genres(new TreeSet<>(genres))
+                .mpa(mpa)
+                .likes(likes)
+                .version(version)
+                .build();
+    }
 }
@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.model.film;
+
+import lombok.Value;
+
+@Value
+public class FilmLike {
+    long filmId;
+    long userId;
+}
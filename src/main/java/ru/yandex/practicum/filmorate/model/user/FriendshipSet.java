@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.model.user;
+
+import ru.yandex.practicum.filmorate.util.LongSet;
+
+import java.util.Objects;
+import java.util.stream.Stream;
+
+// Immutable set of friendships of a user stored as two primitive sets: friend ids and confirmed friend ids
+public final class FriendshipSet {
+
+    private static final FriendshipSet EMPTY = new FriendshipSet(LongSet.empty(), LongSet.empty());
+
+    private final LongSet friendIds;
+    private final LongSet confirmedIds;
+
+    private FriendshipSet(LongSet friendIds, LongSet confirmedIds) {
+        this.friendIds = friendIds;
+        this.confirmedIds = confirmedIds;
+    }
+
+    public static FriendshipSet empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return friendIds.size();
+    }
+
+    public boolean contains(long friendId) {
+        return friendIds.contains(friendId);
+    }
+
+    public boolean isConfirmed(long friendId) {
+        return confirmedIds.contains(friendId);
+    }
+
+    public LongSet getFriendIds() {
+        return friendIds;
+    }
+
+    // Returns this set if the friend is already present
+    public FriendshipSet with(Friendship friendship) {
+        long friendId = friendship.getFriendId();
+        if (friendIds.contains(friendId)) {
+            return this;
+        }
+        return new FriendshipSet(friendIds.with(friendId),
+                friendship.isConfirmed() ? confirmedIds.with(friendId) : confirmedIds);
+    }
+
+    // Returns this set if the friend is absent
+    public FriendshipSet without(long friendId) {
+        if (!friendIds.contains(friendId)) {
+            return this;
+        }
+        return new FriendshipSet(friendIds.without(friendId), confirmedIds.without(friendId));
+    }
+
+    public Stream<Friendship> stream() {
+        return friendIds.stream()
+                .mapToObj(friendId -> Friendship.builder()
+                        .friendId(friendId)
+                        .confirmed(confirmedIds.contains(friendId))
+                        .build());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        FriendshipSet that = (FriendshipSet) o;
+        return friendIds.equals(that.friendIds) && confirmedIds.equals(that.confirmedIds);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(friendIds, confirmedIds);
+    }
+
+    @Override
+    public String toString() {
+        return friendIds.toString();
+    }
+
+    public static final class Builder {
+        private final LongSet.Builder friendIds = LongSet.builder();
+        private final LongSet.Builder confirmedIds = LongSet.builder();
+
+        private Builder() {
+        }
+
+        public Builder add(Friendship friendship) {
+            friendIds.add(friendship.getFriendId());
+            if (friendship.isConfirmed()) {
+                confirmedIds.add(friendship.getFriendId());
+            }
+            return this;
+        }
+
+        public FriendshipSet build() {
+            return new FriendshipSet(friendIds.build(), confirmedIds.build());
+        }
+    }
+}
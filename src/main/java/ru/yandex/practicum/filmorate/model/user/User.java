@@ -5,18 +5,17 @@ import lombok.*;
 import lombok.experimental.FieldDefaults;
 import lombok.experimental.SuperBuilder;
 import ru.yandex.practicum.filmorate.model.BaseEntity;
+import ru.yandex.practicum.filmorate.model.Versioned;
 
 import javax.validation.constraints.*;
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 @Data
 @EqualsAndHashCode(callSuper = true)
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @SuperBuilder
 @NoArgsConstructor
-public class User extends BaseEntity<Long> {
+public class User extends BaseEntity<Long> implements Versioned {
     @NotBlank(message = "Электронная почта не может быть пустой и должна содержать символ @")
     @Email(message = "Электронная почта не может быть пустой и должна содержать символ @")
     String email;
@@ -28,5 +27,21 @@ public class User extends BaseEntity<Long> {
     LocalDate birthday;
     @Builder.Default
     @JsonIgnore
-    Set<Friendship> friendships = new HashSet<>();
+    FriendshipSet friendships = FriendshipSet.empty();
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    long version;
+
+    // Friendships are an immutable set, the rest are values
+    public User copy() {
+        return User.builder()
+                .id(getId())
+                .email(email)
+                .login(login)
+                .name(name)
+                .birthday(birthday)
+                .friendships(friendships)
+                .version(version)
+                .build();
+    }
 }
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class BulkImportResult {
+    int imported;
+    int failed;
+    // Only the first errors are reported, failed holds the total count
+    List<LineError> errors;
+
+    @Value
+    public static class LineError {
+        long line;
+        String message;
+    }
+}
@@ -0,0 +1,172 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Reads NDJSON (one object per line), validates every object and hands valid ones to the handler
+// in chunks, so that each chunk is written with JDBC batches in a single transaction.
+@Slf4j
+@Component
+public class BulkImporter {
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+
+    public BulkImporter(ObjectMapper objectMapper,
+                        Validator validator,
+                        @Value("${filmorate.bulk.chunk-size:1000}") int chunkSize) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    // prepare checks a chunk against stored data and fills in ids and defaults; it returns error messages
+    // by position in the chunk for the items that must be skipped. save writes a chunk in one transaction.
+    public <T> BulkImportResult importLines(InputStream input,
+                                            Class<T> type,
+                                            Function<List<T>, Map<Integer, String>> prepare,
+                                            Consumer<List<T>> save) throws IOException {
+        ObjectReader reader = objectMapper.readerFor(type);
+        Progress progress = new Progress();
+        List<Item<T>> chunk = new ArrayList<>(chunkSize);
+
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            long lineNumber = 0;
+            String line;
+            while ((line = lines.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                T value;
+                try {
+                    value = reader.readValue(line);
+                } catch (JsonProcessingException ex) {
+                    progress.fail(lineNumber, "Некорректный JSON: " + ex.getOriginalMessage());
+                    continue;
+                }
+
+                Set<ConstraintViolation<T>> violations = validator.validate(value);
+                if (!violations.isEmpty()) {
+                    progress.fail(lineNumber, violations.iterator().next().getMessage());
+                    continue;
+                }
+
+                chunk.add(new Item<>(lineNumber, value));
+                if (chunk.size() == chunkSize) {
+                    processChunk(chunk, prepare, save, progress);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            processChunk(chunk, prepare, save, progress);
+        }
+        // Parse errors are reported immediately and chunk errors on flush, so the lines are put back in order
+        progress.errors.sort(Comparator.comparingLong(BulkImportResult.LineError::getLine));
+        return new BulkImportResult(progress.imported, progress.failed, progress.errors);
+    }
+
+    private <T> void processChunk(List<Item<T>> chunk,
+                                  Function<List<T>, Map<Integer, String>> prepare,
+                                  Consumer<List<T>> save,
+                                  Progress progress) {
+        Map<Integer, String> rejected = prepare.apply(chunk.stream()
+                .map(Item::getValue)
+                .collect(Collectors.toList()));
+
+        List<Item<T>> accepted = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            String message = rejected.get(i);
+            if (message == null) {
+                accepted.add(chunk.get(i));
+            } else {
+                progress.fail(chunk.get(i).getLine(), message);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        try {
+            save.accept(accepted.stream().map(Item::getValue).collect(Collectors.toList()));
+            progress.imported += accepted.size();
+        } catch (DataAccessException ex) {
+            // The chunk transaction is rolled back as a whole, so the items are retried one by one
+            // to find the ones that can't be written
+            log.info("Не удалось сохранить пакет из {} объектов, сохраняем по одному: {}",
+                    accepted.size(), ex.getMessage());
+            accepted.forEach(item -> saveOne(item, save, progress));
+        }
+    }
+
+    private <T> void saveOne(Item<T> item, Consumer<List<T>> save, Progress progress) {
+        try {
+            save.accept(List.of(item.getValue()));
+            progress.imported++;
+        } catch (DataAccessException ex) {
+            progress.fail(item.getLine(), saveErrorMessage(item, ex));
+        }
+    }
+
+    // The database message names constraints and quotes SQL, so the client gets a known reason only
+    // and the details go to the log
+    private <T> String saveErrorMessage(Item<T> item, DataAccessException ex) {
+        if (ex instanceof DuplicateKeyException) {
+            log.info("Строка {}: {}", item.getLine(), ex.getMostSpecificCause().getMessage());
+            return "Объект с такими уникальными данными уже существует";
+        }
+        if (ex instanceof DataIntegrityViolationException) {
+            log.info("Строка {}: {}", item.getLine(), ex.getMostSpecificCause().getMessage());
+            return "Объект ссылается на несуществующие данные";
+        }
+        log.warn("Не удалось сохранить объект из строки {}", item.getLine(), ex);
+        return "Не удалось сохранить объект";
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Item<T> {
+        private final long line;
+        private final T value;
+    }
+
+    private static class Progress {
+        private final List<BulkImportResult.LineError> errors = new ArrayList<>();
+        private int imported;
+        private int failed;
+
+        private void fail(long line, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new BulkImportResult.LineError(line, message));
+            }
+        }
+    }
+}
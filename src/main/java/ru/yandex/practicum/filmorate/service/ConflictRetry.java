@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.function.Supplier;
+
+// Repeats a read-modify-write that lost an optimistic locking race, each attempt re-reads the entity
+@Slf4j
+final class ConflictRetry {
+
+    static final int MAX_ATTEMPTS = 3;
+
+    private ConflictRetry() {
+    }
+
+    static <T> T run(Supplier<T> operation) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return operation.get();
+            } catch (OptimisticLockingFailureException ex) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw ex;
+                }
+                log.debug("Повтор после конфликта версий, попытка {}: {}", attempt + 1, ex.getMessage());
+            }
+        }
+    }
+}
@@ -3,22 +3,34 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.BaseEntityNotFoundException;
 import ru.yandex.practicum.filmorate.exception.film.FilmNotFoundException;
 import ru.yandex.practicum.filmorate.exception.film.GenreNotFoundException;
 import ru.yandex.practicum.filmorate.exception.film.MpaNotFoundException;
-import ru.yandex.practicum.filmorate.exception.user.UserNotFoundException;
 import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.FilmLike;
 import ru.yandex.practicum.filmorate.model.film.Genre;
 import ru.yandex.practicum.filmorate.model.film.Mpa;
+import ru.yandex.practicum.filmorate.storage.DataVersion;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.film.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.film.LikeGraph;
 import ru.yandex.practicum.filmorate.storage.film.MpaStorage;
+import ru.yandex.practicum.filmorate.storage.id.IdGenerator;
 
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Comparator;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.TreeSet;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -27,29 +39,65 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class FilmService {
 
-    @Qualifier("databaseFilmStorage")
+    @Qualifier("cachingFilmStorage")
     private final FilmStorage filmStorage;
     private final UserService userService;
     private final MpaStorage mpaStorage;
     private final GenreStorage genreStorage;
-    private Long numerator = 0L;
+    @Qualifier("filmIdGenerator")
+    private final IdGenerator idGenerator;
+    private final BulkImporter bulkImporter;
+    private final LikeWriteBuffer likeWriteBuffer;
+    // Kept in step with every like change written through this service
+    private final LikeGraph likeGraph = new LikeGraph();
+
+    @PostConstruct
+    public void init() {
+        likeWriteBuffer.addWriteListener(this::applyWrittenLikes);
+        loadLikeGraph();
+    }
+
+    public void loadLikeGraph() {
+        likeGraph.load(filmStorage::forEachLike);
+    }
 
     public Film create(Film film) {
         validate(film);
 
-        long id = ++numerator;
+        long id = idGenerator.nextId();
         film.setId(id);
         filmStorage.add(film);
         log.info("Добавлен фильм {}", film);
         return film;
     }
 
+    public BulkImportResult importAll(InputStream input) throws IOException {
+        BulkImportResult result = bulkImporter.importLines(input, Film.class, this::prepareImport, filmStorage::addAll);
+        log.info("Импортировано фильмов: {}, с ошибками: {}", result.getImported(), result.getFailed());
+        return result;
+    }
+
     public Film update(Film film) {
+        return update(film, null);
+    }
+
+    // With an expected version (If-Match) a conflict is reported to the client, otherwise the update is retried
+    public Film update(Film film, Long expectedVersion) {
         validate(film);
+        if (expectedVersion != null) {
+            return tryUpdate(film, expectedVersion);
+        }
+        return ConflictRetry.run(() -> tryUpdate(film, null));
+    }
 
+    private Film tryUpdate(Film film, Long expectedVersion) {
         Long id = film.getId();
         Film savedFilm = filmStorage.findById(id)
                 .orElseThrow(() -> new FilmNotFoundException("Фильм с id = %d не найден", id));
+        if (expectedVersion != null && savedFilm.getVersion() != expectedVersion) {
+            throw new OptimisticLockingFailureException(
+                    String.format("Фильм с id = %d был изменен другим запросом", id));
+        }
 
         savedFilm.setName(film.getName());
         savedFilm.setDescription(film.getDescription());
@@ -66,40 +114,65 @@ public class FilmService {
         return filmStorage.findAll();
     }
 
+    public Collection<Film> getPage(Long afterId, int limit) {
+        return filmStorage.findPage(afterId, limit);
+    }
+
+    public void streamAll(Consumer<Film> action) {
+        filmStorage.streamAll(action);
+    }
+
     public Film getById(Long filmId) {
         return filmStorage.findById(filmId)
                 .orElseThrow(() -> new FilmNotFoundException("Фильм с id = %d не найден", filmId));
     }
 
+    // With the write buffer the like is written later, the like graph follows once the batch is written
     public void addLike(Long filmId, Long userId) {
-        Film film = filmStorage.findById(filmId)
-                .orElseThrow(() -> new FilmNotFoundException("Фильм с id = %d не найден", filmId));
-
-        if (userService.getById(userId) == null) {
-            throw new UserNotFoundException("Пользователь с id = %d не найден", userId);
+        if (likeWriteBuffer.isEnabled()) {
+            ensureFilmAndUserExist(filmId, userId);
+            likeWriteBuffer.addLike(filmId, userId);
+            return;
         }
 
-        film.getLikes().add(userId);
-        filmStorage.update(film);
+        if (filmStorage.addLike(filmId, userId)) {
+            likeGraph.addLike(filmId, userId);
+        } else {
+            ensureFilmAndUserExist(filmId, userId);
+        }
     }
 
     public void removeLike(Long filmId, Long userId) {
-        Film film = filmStorage.findById(filmId)
-                .orElseThrow(() -> new FilmNotFoundException("Фильм с id = %d не найден", filmId));
+        if (likeWriteBuffer.isEnabled()) {
+            ensureFilmAndUserExist(filmId, userId);
+            likeWriteBuffer.removeLike(filmId, userId);
+            return;
+        }
 
-        if (userService.getById(userId) == null) {
-            throw new UserNotFoundException("Пользователь с id = %d не найден", userId);
+        if (filmStorage.removeLike(filmId, userId)) {
+            likeGraph.removeLike(filmId, userId);
+        } else {
+            ensureFilmAndUserExist(filmId, userId);
         }
+    }
 
-        film.getLikes().remove(userId);
-        filmStorage.update(film);
+    // Films liked by the users with the most similar likes, only the returned films are loaded.
+    // The like graph follows written likes, so buffered ones are written first, as for the ranking.
+    public Collection<Film> getRecommendations(Long userId, int count) {
+        likeWriteBuffer.awaitWritten();
+        long[] filmIds = likeGraph.recommendFilms(userId, count);
+        if (filmIds.length == 0) {
+            userService.ensureExists(userId);
+            return Collections.emptyList();
+        }
+        return filmStorage.findAllById(Arrays.stream(filmIds).boxed().collect(Collectors.toList()));
     }
 
-    public Collection<Film> getTop(Integer count) {
-        return filmStorage.findAll().stream()
-                .sorted(Comparator.comparing(film -> film.getLikes().size(), Comparator.reverseOrder()))
-                .limit(count)
-                .collect(Collectors.toList());
+    // The ranking is read from the stored like counts, so buffered likes are written first:
+    // a client sees its own like in the ranking right after it was accepted
+    public Collection<Film> getTop(Integer genreId, Integer year, int offset, int count) {
+        likeWriteBuffer.awaitWritten();
+        return filmStorage.findPopular(genreId, year, offset, count);
     }
 
     public Collection<Genre> getAllGenres() {
@@ -111,6 +184,10 @@ public class FilmService {
                 .orElseThrow(() -> new GenreNotFoundException("Жанр с id = %d не найден", genreId));
     }
 
+    public DataVersion getGenresVersion() {
+        return genreStorage.getVersion();
+    }
+
     public Collection<Mpa> getAllMpa() {
         return mpaStorage.findAll();
     }
@@ -120,17 +197,51 @@ public class FilmService {
                 .orElseThrow(() -> new MpaNotFoundException("MPA с id = %d не найден", mpaId));
     }
 
+    public DataVersion getMpaVersion() {
+        return mpaStorage.getVersion();
+    }
+
+    private void applyWrittenLikes(List<FilmLike> added, List<FilmLike> removed) {
+        added.forEach(like -> likeGraph.addLike(like.getFilmId(), like.getUserId()));
+        removed.forEach(like -> likeGraph.removeLike(like.getFilmId(), like.getUserId()));
+    }
+
+    // Storage like operations report "nothing changed" for missing entities as well,
+    // so existence is only checked on that path
+    private void ensureFilmAndUserExist(Long filmId, Long userId) {
+        if (!filmStorage.existsById(filmId)) {
+            throw new FilmNotFoundException("Фильм с id = %d не найден", filmId);
+        }
+
+        userService.ensureExists(userId);
+    }
+
+    private Map<Integer, String> prepareImport(List<Film> films) {
+        Map<Integer, String> errors = new HashMap<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            try {
+                validate(film);
+            } catch (BaseEntityNotFoundException ex) {
+                errors.put(i, ex.getMessage());
+                continue;
+            }
+            film.setId(idGenerator.nextId());
+        }
+        return errors;
+    }
+
     private void validate(Film film) {
         // Validate MPA
         Integer mpaId = film.getMpa().getId();
-        mpaStorage.findById(film.getMpa().getId())
-                .orElseThrow(() -> new MpaNotFoundException("MPA с id = %d не найден", mpaId));
+        if (!mpaStorage.existsById(mpaId)) {
+            throw new MpaNotFoundException("MPA с id = %d не найден", mpaId);
+        }
 
         // Validate Genres
-        List<Genre> allGenres = genreStorage.findAll();
         String invalidGenreIds = film.getGenres().stream()
-                .filter(Predicate.not(allGenres::contains))
                 .map(Genre::getId)
+                .filter(Predicate.not(genreStorage::existsById))
                 .map(Object::toString)
                 .collect(Collectors.joining(","));
 
@@ -0,0 +1,228 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.LikeQueueFullException;
+import ru.yandex.practicum.filmorate.model.film.FilmLike;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+// Write-behind buffer for likes, enabled by filmorate.likes.async.enabled. A like or unlike only records
+// the latest state of its (film, user) pair; a background thread writes all pending pairs in one transaction
+// every flush interval. When the buffer is full, requests wait for the next flush to free space and fail
+// after the offer timeout. A batch that fails to be written is retried with the next flushes and dropped
+// after max-retries failed attempts; while writes fail, readers don't wait for them.
+// Listeners learn about a batch only after it is written.
+@Slf4j
+@Component
+public class LikeWriteBuffer {
+
+    private final FilmStorage filmStorage;
+    private final boolean enabled;
+    private final int capacity;
+    private final long flushIntervalMillis;
+    private final long timeoutNanos;
+    private final int maxRetries;
+    private final List<BiConsumer<List<FilmLike>, List<FilmLike>>> writeListeners = new ArrayList<>();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong droppedLikes = new AtomicLong();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition written = lock.newCondition();
+    // true for a like, false for an unlike; the last change of a pair wins
+    private Map<FilmLike, Boolean> pending = new LinkedHashMap<>();
+    // Sequence number of the last accepted change and of the last one known to be in the database or dropped
+    private long acceptedSeq;
+    private long writtenSeq;
+    // Failed attempts to write the pending batch, and whether the last attempt failed
+    private int failedAttempts;
+    private boolean failing;
+    private ScheduledExecutorService flusher;
+
+    public LikeWriteBuffer(@Qualifier("cachingFilmStorage") FilmStorage filmStorage,
+                           @Value("${filmorate.likes.async.enabled:false}") boolean enabled,
+                           @Value("${filmorate.likes.async.capacity:10000}") int capacity,
+                           @Value("${filmorate.likes.async.flush-interval-ms:5}") long flushIntervalMillis,
+                           @Value("${filmorate.likes.async.timeout-ms:1000}") long timeoutMillis,
+                           @Value("${filmorate.likes.async.max-retries:3}") int maxRetries) {
+        this.filmStorage = filmStorage;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.maxRetries = maxRetries;
+    }
+
+    // Called from the writing thread with the likes and unlikes of every written batch.
+    // Must be registered before the buffer is used.
+    public void addWriteListener(BiConsumer<List<FilmLike>, List<FilmLike>> listener) {
+        writeListeners.add(listener);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "like-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Writes what is still pending before the storage goes away
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+
+        flusher.shutdown();
+        flusher.awaitTermination(timeoutNanos, TimeUnit.NANOSECONDS);
+        flush();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getFailedFlushCount() {
+        return failedFlushes.get();
+    }
+
+    public long getDroppedLikeCount() {
+        return droppedLikes.get();
+    }
+
+    public void addLike(long filmId, long userId) {
+        offer(new FilmLike(filmId, userId), true);
+    }
+
+    public void removeLike(long filmId, long userId) {
+        offer(new FilmLike(filmId, userId), false);
+    }
+
+    // Returns once every change accepted before the call is in the database, or after the timeout.
+    // Returns at once while the last write has failed.
+    public void awaitWritten() {
+        lock.lock();
+        try {
+            long targetSeq = acceptedSeq;
+            long nanos = timeoutNanos;
+            while (writtenSeq < targetSeq && !failing && nanos > 0) {
+                nanos = written.awaitNanos(nanos);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A change of a pending pair replaces it and needs no space
+    private void offer(FilmLike like, boolean liked) {
+        lock.lock();
+        try {
+            long nanos = timeoutNanos;
+            while (pending.size() >= capacity && !pending.containsKey(like)) {
+                if (nanos <= 0) {
+                    throw new LikeQueueFullException("Слишком много оценок, повторите запрос позже");
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            pending.put(like, liked);
+            acceptedSeq++;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new LikeQueueFullException("Оценка не принята: запрос прерван");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void flush() {
+        Map<FilmLike, Boolean> batch;
+        long batchSeq;
+        lock.lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            batchSeq = acceptedSeq;
+            pending = new LinkedHashMap<>();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        List<FilmLike> added = new ArrayList<>();
+        List<FilmLike> removed = new ArrayList<>();
+        batch.forEach((like, liked) -> (liked ? added : removed).add(like));
+        try {
+            filmStorage.applyLikes(added, removed);
+        } catch (RuntimeException ex) {
+            failedFlushes.incrementAndGet();
+            if (!retry(batch, batchSeq)) {
+                droppedLikes.addAndGet(batch.size());
+                log.error("Не удалось записать {} оценок за {} попыток, оценки потеряны",
+                        batch.size(), maxRetries + 1, ex);
+            } else {
+                log.warn("Не удалось записать {} оценок, повтор при следующей записи", batch.size(), ex);
+            }
+            return;
+        }
+
+        // Listeners run before waiting readers are released, so a reader sees the batch in what they maintain
+        writeListeners.forEach(listener -> listener.accept(added, removed));
+        lock.lock();
+        try {
+            failedAttempts = 0;
+            failing = false;
+            writtenSeq = batchSeq;
+            written.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Puts the batch back unless it has run out of attempts. Changes made while the batch was being written
+    // are newer and are kept. Waiting readers are released either way.
+    private boolean retry(Map<FilmLike, Boolean> batch, long batchSeq) {
+        lock.lock();
+        try {
+            failing = true;
+            written.signalAll();
+            if (++failedAttempts > maxRetries) {
+                failedAttempts = 0;
+                writtenSeq = batchSeq;
+                return false;
+            }
+            Map<FilmLike, Boolean> newer = pending;
+            pending = new LinkedHashMap<>(batch);
+            pending.putAll(newer);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -4,17 +4,21 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.user.UserAlreadyExistsException;
 import ru.yandex.practicum.filmorate.exception.user.UserNotFoundException;
-import ru.yandex.practicum.filmorate.model.user.Friendship;
 import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.storage.id.IdGenerator;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
-import java.util.Collection;
-import java.util.Objects;
-import java.util.Optional;
-import java.util.Set;
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -22,29 +26,60 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class UserService {
 
-    @Qualifier("databaseUserStorage")
+    @Qualifier("cachingUserStorage")
     private final UserStorage userStorage;
-    private Long numerator = 0L;
+    @Qualifier("userIdGenerator")
+    private final IdGenerator idGenerator;
+    private final BulkImporter bulkImporter;
+    // Kept in step with every friendship change made through this service
+    private final FriendGraph friendGraph = new FriendGraph();
+
+    @PostConstruct
+    public void loadFriendGraph() {
+        friendGraph.load(userStorage::forEachFriendship);
+    }
 
     public User create(User user) {
         validate(user);
-        Long id = ++numerator;
+        Long id = idGenerator.nextId();
         user.setId(id);
         ensureName(user);
-        userStorage.add(user);
+        save(user, userStorage::add);
         log.info("Добавлен пользователь {}", user);
         return user;
     }
 
+    public BulkImportResult importAll(InputStream input) throws IOException {
+        BulkImportResult result = bulkImporter.importLines(input, User.class, this::prepareImport, userStorage::addAll);
+        log.info("Импортировано пользователей: {}, с ошибками: {}", result.getImported(), result.getFailed());
+        return result;
+    }
+
     public User update(User user) {
+        return update(user, null);
+    }
+
+    // With an expected version (If-Match) a conflict is reported to the client, otherwise the update is retried
+    public User update(User user, Long expectedVersion) {
+        if (expectedVersion != null) {
+            return tryUpdate(user, expectedVersion);
+        }
+        return ConflictRetry.run(() -> tryUpdate(user, null));
+    }
+
+    private User tryUpdate(User user, Long expectedVersion) {
         Long id = user.getId();
         User savedUser = userStorage.findById(id)
                 .orElseThrow(() -> new UserNotFoundException("Пользователь с id = %d не найден", id));
+        if (expectedVersion != null && savedUser.getVersion() != expectedVersion) {
+            throw new OptimisticLockingFailureException(
+                    String.format("Пользователь с id = %d был изменен другим запросом", id));
+        }
 
         validate(user);
         ensureName(user);
-        BeanUtils.copyProperties(user, savedUser, "friendships");
-        userStorage.update(savedUser);
+        BeanUtils.copyProperties(user, savedUser, "friendships", "version");
+        save(savedUser, userStorage::update);
         log.info("Обновлен пользователь {}", savedUser);
         return savedUser;
     }
@@ -53,63 +88,97 @@ public class UserService {
         return userStorage.findAll();
     }
 
+    public Collection<User> getPage(Long afterId, int limit) {
+        return userStorage.findPage(afterId, limit);
+    }
+
+    public void streamAll(Consumer<User> action) {
+        userStorage.streamAll(action);
+    }
+
     public User getById(Long userId) {
         return userStorage.findById(userId)
                 .orElseThrow(() -> new UserNotFoundException("Пользователь с id = %d не найден", userId));
     }
 
-    public Collection<User> getFriendsByUserId(Long userId) {
-        User user = userStorage.findById(userId)
-                .orElseThrow(() -> new UserNotFoundException("Пользователь с id = %d не найден", userId));
+    public void ensureExists(Long userId) {
+        if (!userStorage.existsById(userId)) {
+            throw new UserNotFoundException("Пользователь с id = %d не найден", userId);
+        }
+    }
 
-        return user.getFriendships()
-                .stream()
-                .map(Friendship::getFriendId)
-                .map(userStorage::findById)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toList());
+    // An empty result is ambiguous (no friends or no user), so existence is only checked in that case
+    public Collection<User> getFriendsByUserId(Long userId) {
+        List<User> friends = userStorage.findFriends(userId);
+        if (friends.isEmpty()) {
+            ensureExists(userId);
+        }
+        return friends;
     }
 
     public void addFriend(Long userId, Long friendId) {
-        User user = userStorage.findById(userId)
-                .orElseThrow(() -> new UserNotFoundException("Пользователь с id = %d не найден", userId));
-
-        userStorage.findById(friendId)
-                .orElseThrow(() -> new UserNotFoundException("Пользователь с id = %d не найден", friendId));
-
-        user.getFriendships().add(Friendship.builder().friendId(friendId).build());
-        userStorage.update(user);
+        if (userStorage.addFriendship(userId, friendId)) {
+            friendGraph.addFriendship(userId, friendId);
+        } else {
+            ensureExists(userId);
+            ensureExists(friendId);
+        }
     }
 
     public void removeFriend(Long userId, Long friendId) {
-        User user = userStorage.findById(userId)
-                .orElseThrow(() -> new UserNotFoundException("Пользователь с id = %d не найден", userId));
-
-        userStorage.findById(friendId)
-                .orElseThrow(() -> new UserNotFoundException("Пользователь с id = %d не найден", friendId));
+        if (userStorage.removeFriendship(userId, friendId)) {
+            friendGraph.removeFriendship(userId, friendId);
+        } else {
+            ensureExists(userId);
+            ensureExists(friendId);
+        }
+    }
 
-        user.getFriendships().remove(Friendship.builder().friendId(friendId).build());
-        userStorage.update(user);
+    // Friends of friends ranked by the graph, only the returned users are loaded from the storage
+    public Collection<User> getFriendSuggestions(Long userId, int count) {
+        long[] suggestedIds = friendGraph.suggestFriends(userId, count);
+        if (suggestedIds.length == 0) {
+            ensureExists(userId);
+            return Collections.emptyList();
+        }
+        return userStorage.findAllById(Arrays.stream(suggestedIds).boxed().collect(Collectors.toList()));
     }
 
     public Collection<User> getCommonFriends(Long firstUserId, Long secondUserId) {
-        User firstUser = userStorage.findById(firstUserId)
-                .orElseThrow(() -> new UserNotFoundException("Пользователь с id = %d не найден", firstUserId));
-
-        User secondUser = userStorage.findById(secondUserId)
-                .orElseThrow(() -> new UserNotFoundException("Пользователь с id = %d не найден", secondUserId));
-
-        Set<Long> commonIds = firstUser.getFriendships().stream()
-                .map(Friendship::getFriendId).collect(Collectors.toSet());
-        commonIds.retainAll(secondUser.getFriendships().stream()
-                .map(Friendship::getFriendId)
-                .collect(Collectors.toSet()));
-        return commonIds.stream()
-                .map(userStorage::findById)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toList());
+        List<User> commonFriends = userStorage.findCommonFriends(firstUserId, secondUserId);
+        if (commonFriends.isEmpty()) {
+            ensureExists(firstUserId);
+            ensureExists(secondUserId);
+        }
+        return commonFriends;
+    }
+
+    // Emails are checked with one query per chunk and against the previous lines of the chunk
+    private Map<Integer, String> prepareImport(List<User> users) {
+        Set<String> takenEmails = new HashSet<>(userStorage.findExistingEmails(users.stream()
+                .map(User::getEmail)
+                .collect(Collectors.toSet())));
+
+        Map<Integer, String> errors = new HashMap<>();
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (!takenEmails.add(user.getEmail())) {
+                errors.put(i, String.format("Пользователь с почтой %s уже существует", user.getEmail()));
+                continue;
+            }
+            user.setId(idGenerator.nextId());
+            ensureName(user);
+        }
+        return errors;
+    }
+
+    // validate() checks the email beforehand, the storage unique constraint catches concurrent registrations
+    private void save(User user, Consumer<User> operation) {
+        try {
+            operation.accept(user);
+        } catch (DuplicateKeyException ex) {
+            throw new UserAlreadyExistsException("Пользователь с почтой %s уже существует", user.getEmail());
+        }
     }
 
     private void ensureName(User user) {
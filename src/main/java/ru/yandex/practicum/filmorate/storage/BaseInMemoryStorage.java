@@ -1,35 +1,77 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import ru.yandex.practicum.filmorate.model.BaseEntity;
+import ru.yandex.practicum.filmorate.model.Versioned;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
-public abstract class BaseInMemoryStorage<E extends BaseEntity<K>, K> implements Storage<E, K> {
+// Entities are kept in a ConcurrentHashMap: reads are lock-free and writes lock only the bin of their key,
+// so the storage can be shared by request threads. Iteration goes over the live map and is weakly consistent:
+// it never fails on concurrent changes and doesn't copy the map.
+// The stored instances are never handed to callers: reads return copies, add and update store copies,
+// and a change replaces the stored instance by a changed copy. So a reader never sees a half-changed entity
+// and a read-modify-write by a service is checked against the stored version.
+// Subclasses may declare unique secondary indexes; their keys are reserved before an entity is stored,
+// so two entities can never hold the same key even if they are written concurrently.
+public abstract class BaseInMemoryStorage<E extends BaseEntity<K>, K extends Comparable<K>> implements Storage<E, K> {
 
-    private final Map<K, E> entities = new HashMap<>();
+    private final ConcurrentMap<K, E> entities = new ConcurrentHashMap<>();
+    private final Map<String, UniqueIndex<E, K>> uniqueIndexes = new LinkedHashMap<>();
+    private final UnaryOperator<E> copier;
+
+    protected BaseInMemoryStorage(UnaryOperator<E> copier) {
+        this.copier = copier;
+    }
 
     public void add(E entity) {
         validate(entity);
-        if (entities.containsKey(entity.getId())) {
-            throw new IllegalArgumentException(String.format("Объект c id = %s уже содержится в хранилище.",
-                    entity.getId()));
+        K id = entity.getId();
+        List<Runnable> rollback = reserveKeys(id, entity);
+        boolean[] added = {false};
+        entities.computeIfAbsent(id, key -> {
+            E stored = copier.apply(entity);
+            onStored(stored);
+            added[0] = true;
+            return stored;
+        });
+        if (!added[0]) {
+            rollback.forEach(Runnable::run);
+            throw new IllegalArgumentException(String.format("Объект c id = %s уже содержится в хранилище.", id));
         }
-        entities.put(entity.getId(), entity);
+        commitKeys(id, entity);
     }
 
+    // Compare-and-swap by version: the stored version is compared and the copy stored under the lock of the id,
+    // the caller's entity then gets the new version
     public void update(E entity) {
         validate(entity);
-        entities.put(entity.getId(), entity);
+        E updated = entities.compute(entity.getId(),
+                (id, current) -> reindex(id, nextVersion(current, keepStored(current, copier.apply(entity)))));
+        if (entity instanceof Versioned) {
+            ((Versioned) entity).setVersion(((Versioned) updated).getVersion());
+        }
     }
 
     public void remove(E entity) {
         validate(entity);
-        entities.remove(entity.getId());
+        removeById(entity.getId());
     }
 
     @Override
     public void removeById(K id) {
-        entities.remove(id);
+        entities.computeIfPresent(id, (key, entity) -> {
+            uniqueIndexes.values().forEach(index -> index.release(key));
+            onRemoved(key);
+            return null;
+        });
     }
 
     public boolean contains(E entity) {
@@ -38,11 +80,108 @@ public abstract class BaseInMemoryStorage<E extends BaseEntity<K>, K> implements
     }
 
     public Optional<E> findById(K id) {
-        return Optional.ofNullable(entities.get(id));
+        return Optional.ofNullable(entities.get(id)).map(copier);
     }
 
     public List<E> findAll() {
-        return new ArrayList<>(entities.values());
+        return entities.values().stream()
+                .map(copier)
+                .collect(Collectors.toList());
+    }
+
+    public List<E> findPage(K afterId, int limit) {
+        return entities.values().stream()
+                .filter(entity -> entity.getId().compareTo(afterId) > 0)
+                .sorted(Comparator.comparing(BaseEntity::getId))
+                .limit(limit)
+                .map(copier)
+                .collect(Collectors.toList());
+    }
+
+    public void streamAll(Consumer<E> action) {
+        entities.values().forEach(entity -> action.accept(copier.apply(entity)));
+    }
+
+    // Applies the change to a copy of the stored entity and stores the copy, atomically with respect
+    // to other changes of the same entity
+    protected Optional<E> updateById(K id, UnaryOperator<E> updater) {
+        return Optional.ofNullable(entities.computeIfPresent(id,
+                (key, entity) -> reindex(key, updater.apply(copier.apply(entity)))));
+    }
+
+    // Associations changed by their own operations (likes, friendships) don't bump the version, so update
+    // takes them from the stored entity instead of a possibly stale copy, as the database storages do
+    protected E keepStored(E current, E updated) {
+        return updated;
+    }
+
+    // Called under the lock of the id whenever a new state of the entity is stored or the entity is removed,
+    // so derived indexes see the changes of one entity in the order they were made
+    protected void onStored(E entity) {
+    }
+
+    protected void onRemoved(K id) {
+    }
+
+    // Must be called from the subclass constructor, before the storage is used
+    protected void declareUniqueIndex(String name, Function<E, ?> keyExtractor) {
+        uniqueIndexes.put(name, new UniqueIndex<>(name, keyExtractor));
+    }
+
+    protected Optional<E> findByUniqueKey(String indexName, Object key) {
+        K id = uniqueIndexes.get(indexName).findId(key);
+        return id == null ? Optional.empty() : findById(id);
+    }
+
+    protected boolean containsUniqueKey(String indexName, Object key) {
+        return findByUniqueKey(indexName, key).isPresent();
+    }
+
+    // Versioned entities are replaced only if their version matches the stored one
+    private E nextVersion(E current, E entity) {
+        if (!(entity instanceof Versioned)) {
+            return entity;
+        }
+
+        Versioned versioned = (Versioned) entity;
+        long version = versioned.getVersion();
+        if (current != null && ((Versioned) current).getVersion() != version) {
+            throw new OptimisticLockingFailureException(
+                    String.format("Объект c id = %s был изменен другим запросом", entity.getId()));
+        }
+        versioned.setVersion(version + 1);
+        return entity;
+    }
+
+    // Called while the entity id is locked by the map, so only keys of other entities may race
+    private E reindex(K id, E entity) {
+        reserveKeys(id, entity);
+        commitKeys(id, entity);
+        onStored(entity);
+        return entity;
+    }
+
+    // Returns actions that release the newly reserved keys if the entity is not stored after all
+    private List<Runnable> reserveKeys(K id, E entity) {
+        List<Runnable> rollback = new ArrayList<>();
+        for (UniqueIndex<E, K> index : uniqueIndexes.values()) {
+            try {
+                index.reserve(id, entity).ifPresent(rollback::add);
+            } catch (DuplicateKeyException ex) {
+                rollback.forEach(Runnable::run);
+                throw ex;
+            }
+        }
+        return rollback;
+    }
+
+    private void commitKeys(K id, E entity) {
+        uniqueIndexes.values().forEach(index -> index.commit(id, entity));
+    }
+
+    // Read-only view for iteration without copying
+    protected Collection<E> values() {
+        return Collections.unmodifiableCollection(entities.values());
     }
 
     private void validate(E entity) {
@@ -50,4 +189,53 @@ public abstract class BaseInMemoryStorage<E extends BaseEntity<K>, K> implements
             throw new IllegalArgumentException("Id сущности не может быть null");
         }
     }
+
+    private static class UniqueIndex<E, K> {
+        private final String name;
+        private final Function<E, ?> keyExtractor;
+        private final ConcurrentMap<Object, K> idsByKey = new ConcurrentHashMap<>();
+        private final ConcurrentMap<K, Object> keysById = new ConcurrentHashMap<>();
+
+        UniqueIndex(String name, Function<E, ?> keyExtractor) {
+            this.name = name;
+            this.keyExtractor = keyExtractor;
+        }
+
+        K findId(Object key) {
+            return key == null ? null : idsByKey.get(key);
+        }
+
+        Optional<Runnable> reserve(K id, E entity) {
+            Object key = keyExtractor.apply(entity);
+            if (key == null) {
+                return Optional.empty();
+            }
+
+            K holderId = idsByKey.putIfAbsent(key, id);
+            if (holderId == null) {
+                return Optional.of(() -> idsByKey.remove(key, id));
+            }
+            if (!holderId.equals(id)) {
+                throw new DuplicateKeyException(String.format("Значение %s индекса %s уже занято объектом c id = %s",
+                        key, name, holderId));
+            }
+            return Optional.empty();
+        }
+
+        // Frees the previous key of the entity once the new one is reserved
+        void commit(K id, E entity) {
+            Object key = keyExtractor.apply(entity);
+            Object previousKey = key == null ? keysById.remove(id) : keysById.put(id, key);
+            if (previousKey != null && !previousKey.equals(key)) {
+                idsByKey.remove(previousKey, id);
+            }
+        }
+
+        void release(K id) {
+            Object key = keysById.remove(id);
+            if (key != null) {
+                idsByKey.remove(key, id);
+            }
+        }
+    }
 }
@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.Value;
+
+// Content hash of a data set and the time it last changed, used for HTTP validators
+@Value
+public class DataVersion {
+    String eTag;
+    long lastModified;
+}
@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+// Bounded cache of entities by id, configured by a Caffeine spec ("maximumSize=10000,expireAfterWrite=10m").
+// Entities are mutable, so the cache keeps its own instances and hands out copies.
+// A load runs inside Caffeine's computation for its key and an invalidation of the key waits for it,
+// so a value read before a write can't stay cached after the write invalidated it.
+// Existence is cached separately: a change of an entity invalidates it, only a removal forgets its id.
+public class EntityCache<K, E> {
+
+    private final Cache<K, E> cache;
+    private final Cache<K, Boolean> existingIds;
+    private final UnaryOperator<E> copier;
+
+    public EntityCache(String spec, UnaryOperator<E> copier) {
+        this.cache = Caffeine.from(spec)
+                .recordStats()
+                .build();
+        this.existingIds = Caffeine.from(spec).build();
+        this.copier = copier;
+    }
+
+    // Missing entities are not cached
+    public Optional<E> get(K id, Function<K, Optional<E>> loader) {
+        E entity = cache.get(id, key -> loader.apply(key).orElse(null));
+        if (entity == null) {
+            return Optional.empty();
+        }
+        existingIds.put(id, Boolean.TRUE);
+        return Optional.of(copier.apply(entity));
+    }
+
+    public boolean contains(K id) {
+        return cache.getIfPresent(id) != null;
+    }
+
+    // Missing ids are not cached, an entity may be added with that id later.
+    // The check runs inside the computation for the id, so a removal waits for it as for a load.
+    public boolean exists(K id, Predicate<K> checker) {
+        if (cache.getIfPresent(id) != null) {
+            return true;
+        }
+        return existingIds.get(id, key -> checker.test(key) ? Boolean.TRUE : null) != null;
+    }
+
+    // Only the cached ones, nothing is loaded
+    public Map<K, E> getAllPresent(Collection<K> ids) {
+        Map<K, E> entities = new HashMap<>();
+        cache.getAllPresent(ids).forEach((id, entity) -> entities.put(id, copier.apply(entity)));
+        return entities;
+    }
+
+    public void invalidate(K id) {
+        cache.invalidate(id);
+    }
+
+    public void remove(K id) {
+        existingIds.invalidate(id);
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll(Collection<K> ids) {
+        cache.invalidateAll(ids);
+    }
+
+    public Cache<K, E> getCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.util.DigestUtils;
+import ru.yandex.practicum.filmorate.model.BaseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Immutable snapshot of a small reference table indexed by id in an array.
+// A lookup of an unknown id reloads the snapshot (at most once per interval), so rows added
+// to the table become visible without a restart.
+public class ReferenceCache<E extends BaseEntity<Integer>> {
+
+    private static final long MISS_RELOAD_INTERVAL_NANOS = 60_000_000_000L;
+
+    private final Supplier<List<E>> loader;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    // Held while the table is queried, so a lock instead of a monitor that would pin a virtual thread
+    private final Lock reloadLock = new ReentrantLock();
+    private volatile Snapshot<E> snapshot =
+            new Snapshot<>(Collections.emptyList(), System.nanoTime() - MISS_RELOAD_INTERVAL_NANOS, null);
+
+    public ReferenceCache(Supplier<List<E>> loader) {
+        this.loader = loader;
+    }
+
+    public void reload() {
+        snapshot = new Snapshot<>(loader.get(), System.nanoTime(), snapshot.version);
+    }
+
+    public Optional<E> findById(Integer id) {
+        E entity = snapshot.get(id);
+        if (entity != null) {
+            hits.incrementAndGet();
+            return Optional.of(entity);
+        }
+
+        misses.incrementAndGet();
+        reloadAfterMiss();
+        return Optional.ofNullable(snapshot.get(id));
+    }
+
+    public List<E> findAll() {
+        hits.incrementAndGet();
+        return snapshot.values;
+    }
+
+    public DataVersion getVersion() {
+        return snapshot.version;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    private void reloadAfterMiss() {
+        reloadLock.lock();
+        try {
+            if (System.nanoTime() - snapshot.loadedAt >= MISS_RELOAD_INTERVAL_NANOS) {
+                reload();
+            }
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private static class Snapshot<E extends BaseEntity<Integer>> {
+        private final List<E> values;
+        private final Object[] byId;
+        private final long loadedAt;
+        private final DataVersion version;
+
+        Snapshot(List<E> entities, long loadedAt, DataVersion previousVersion) {
+            this.values = List.copyOf(entities);
+            this.loadedAt = loadedAt;
+            this.version = version(values, previousVersion);
+            int maxId = entities.stream()
+                    .mapToInt(BaseEntity::getId)
+                    .max()
+                    .orElse(-1);
+            this.byId = new Object[maxId + 1];
+            entities.forEach(entity -> byId[entity.getId()] = entity);
+        }
+
+        // A reload that returns the same rows keeps the previous modification time
+        private static DataVersion version(List<?> values, DataVersion previousVersion) {
+            StringBuilder content = new StringBuilder();
+            values.forEach(entity -> content.append(((BaseEntity<?>) entity).getId()).append(entity).append('\n'));
+            String eTag = DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8));
+            if (previousVersion != null && previousVersion.getETag().equals(eTag)) {
+                return previousVersion;
+            }
+            return new DataVersion(eTag, System.currentTimeMillis());
+        }
+
+        @SuppressWarnings("unchecked")
+        E get(Integer id) {
+            if (id == null || id < 0 || id >= byId.length) {
+                return null;
+            }
+            return (E) byId[id];
+        }
+    }
+}
@@ -2,12 +2,18 @@ package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.BaseEntity;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface Storage<E extends BaseEntity<ID>, ID> {
     void add(E entity);
 
+    // Implementations backed by a database add all entities in one transaction
+    default void addAll(Collection<E> entities) {
+        entities.forEach(this::add);
+    }
+
     void update(E entity);
 
     boolean contains(E entity);
@@ -16,6 +22,10 @@ public interface Storage<E extends BaseEntity<ID>, ID> {
 
     void removeById(ID id);
 
+    default boolean existsById(ID id) {
+        return findById(id).isPresent();
+    }
+
     Optional<E> findById(ID id);
 
     List<E> findAll();
@@ -1,7 +1,37 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.FilmLike;
 import ru.yandex.practicum.filmorate.storage.Storage;
+import ru.yandex.practicum.filmorate.util.LongPairConsumer;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Lists (findAll, findAllById, findPopular, findPage, streamAll) may leave the likes out, only findById loads them
 public interface FilmStorage extends Storage<Film, Long> {
+    List<Film> findAllById(List<Long> ids);
+
+    // Films ordered by like count and id, optionally of one genre and/or release year (null means any)
+    List<Film> findPopular(Integer genreId, Integer year, int offset, int count);
+
+    // Keyset pagination: up to limit films with id greater than afterId, ordered by id
+    List<Film> findPage(Long afterId, int limit);
+
+    // Passes every film to the action without materializing the whole catalog; likes are not loaded
+    void streamAll(Consumer<Film> action);
+
+    // Passes every like as (film id, user id), in no particular order
+    void forEachLike(LongPairConsumer action);
+
+    // Returns true if the like was added, false if it already exists or the film or the user is missing
+    boolean addLike(Long filmId, Long userId);
+
+    // Returns true if the like was removed, false if there was nothing to remove
+    boolean removeLike(Long filmId, Long userId);
+
+    // Adds and removes a batch of likes in one transaction; existing, missing and dangling likes are skipped.
+    // A pair must not be both added and removed.
+    void applyLikes(Collection<FilmLike> added, Collection<FilmLike> removed);
 }
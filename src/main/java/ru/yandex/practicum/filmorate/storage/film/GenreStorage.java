@@ -1,7 +1,10 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.storage.DataVersion;
 import ru.yandex.practicum.filmorate.storage.Storage;
 
 public interface GenreStorage extends Storage<Genre, Integer> {
+
+    DataVersion getVersion();
 }
@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.Value;
+import ru.yandex.practicum.filmorate.util.LongDoubleMap;
+import ru.yandex.practicum.filmorate.util.LongGraph;
+import ru.yandex.practicum.filmorate.util.LongPairConsumer;
+import ru.yandex.practicum.filmorate.util.LongSet;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+// Likes indexed both ways, user -> films and film -> users, for user-based collaborative filtering
+public class LikeGraph {
+
+    // Number of most similar users whose likes are turned into recommendations
+    private static final int NEIGHBOURS = 50;
+
+    // The root of a bounded heap is the worst of the kept entries: the lowest score, then the highest id
+    private static final Comparator<Scored> WORST_FIRST = Comparator.comparingDouble(Scored::getScore)
+            .thenComparing(Comparator.comparingLong(Scored::getId).reversed());
+
+    private final LongGraph usersByFilm = new LongGraph();
+    private final LongGraph filmsByUser = new LongGraph();
+
+    // The source passes likes as (film id, user id); it is read once, the user side is built from the film side
+    public synchronized void load(Consumer<LongPairConsumer> source) {
+        usersByFilm.load(source);
+        filmsByUser.load(action -> usersByFilm.forEachEdge((filmId, userId) -> action.accept(userId, filmId)));
+    }
+
+    public synchronized void addLike(long filmId, long userId) {
+        usersByFilm.addEdge(filmId, userId);
+        filmsByUser.addEdge(userId, filmId);
+    }
+
+    public synchronized void removeLike(long filmId, long userId) {
+        usersByFilm.removeEdge(filmId, userId);
+        filmsByUser.removeEdge(userId, filmId);
+    }
+
+    // 1. Overlap counts with every user who liked any of the user's films, from the film -> users index.
+    // 2. The NEIGHBOURS users with the highest Jaccard similarity |A ∩ B| / |A ∪ B|.
+    // 3. Films liked by the neighbours and not by the user, scored by the sum of the neighbours' similarity.
+    // Counters are primitive hash maps and both selections are heaps bounded by their size,
+    // so an entry is allocated only when it enters a heap.
+    public long[] recommendFilms(long userId, int limit) {
+        LongSet likedIds = filmsByUser.findTargets(userId);
+        if (likedIds.isEmpty()) {
+            return new long[0];
+        }
+
+        LongDoubleMap overlaps = new LongDoubleMap(256);
+        likedIds.forEach(filmId -> usersByFilm.forEachTarget(filmId, otherId -> {
+            if (otherId != userId) {
+                overlaps.add(otherId, 1);
+            }
+        }));
+
+        PriorityQueue<Scored> neighbours = new PriorityQueue<>(NEIGHBOURS + 1, WORST_FIRST);
+        overlaps.forEach((otherId, overlap) -> {
+            double union = likedIds.size() + filmsByUser.countTargets(otherId) - overlap;
+            offer(neighbours, NEIGHBOURS, otherId, overlap / union);
+        });
+
+        LongDoubleMap scores = new LongDoubleMap(256);
+        for (Scored neighbour : neighbours) {
+            filmsByUser.forEachTarget(neighbour.getId(), filmId -> {
+                if (!likedIds.contains(filmId)) {
+                    scores.add(filmId, neighbour.getScore());
+                }
+            });
+        }
+
+        PriorityQueue<Scored> top = new PriorityQueue<>(limit + 1, WORST_FIRST);
+        scores.forEach((filmId, score) -> offer(top, limit, filmId, score));
+        long[] filmIds = new long[top.size()];
+        for (int i = filmIds.length - 1; i >= 0; i--) {
+            filmIds[i] = top.poll().getId();
+        }
+        return filmIds;
+    }
+
+    private static void offer(PriorityQueue<Scored> heap, int capacity, long id, double score) {
+        if (heap.size() == capacity) {
+            Scored worst = heap.peek();
+            if (score < worst.getScore() || (score == worst.getScore() && id > worst.getId())) {
+                return;
+            }
+            heap.poll();
+        }
+        heap.add(new Scored(id, score));
+    }
+
+    @Value
+    private static class Scored {
+        long id;
+        double score;
+    }
+}
@@ -1,7 +1,10 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.film.Mpa;
+import ru.yandex.practicum.filmorate.storage.DataVersion;
 import ru.yandex.practicum.filmorate.storage.Storage;
 
 public interface MpaStorage extends Storage<Mpa, Integer> {
+
+    DataVersion getVersion();
 }
@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.Value;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+// Films ordered by like count (descending) and id (ascending). Each change costs O(log M),
+// the top N films are read in O(N) without touching the rest of the catalog.
+public class PopularityIndex {
+
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt(Entry::getLikeCount)
+            .reversed()
+            .thenComparingLong(Entry::getFilmId);
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final NavigableSet<Entry> ranking = new TreeSet<>(ORDER);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void put(long filmId, int likeCount) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = new Entry(filmId, likeCount);
+            Entry previous = entries.put(filmId, entry);
+            if (previous != null) {
+                ranking.remove(previous);
+            }
+            ranking.add(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long filmId) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.remove(filmId);
+            if (entry != null) {
+                ranking.remove(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Skips the first offset films accepted by the filter and returns up to count next ones
+    public List<Long> findTop(int offset, int count, LongPredicate filter) {
+        lock.readLock().lock();
+        try {
+            List<Long> filmIds = new ArrayList<>(Math.min(count, ranking.size()));
+            Iterator<Entry> iterator = ranking.iterator();
+            int skipped = 0;
+            while (filmIds.size() < count && iterator.hasNext()) {
+                long filmId = iterator.next().getFilmId();
+                if (!filter.test(filmId)) {
+                    continue;
+                }
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    filmIds.add(filmId);
+                }
+            }
+            return filmIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Value
+    private static class Entry {
+        long filmId;
+        int likeCount;
+    }
+}
@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.Value;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// The overall ranking plus one PopularityIndex per genre and per release year. A filtered leaderboard
+// is read from its own index, only the genre and year combination filters the year ranking by genre.
+public class PopularityRankings {
+
+    private final PopularityIndex all = new PopularityIndex();
+    private final Map<Integer, PopularityIndex> byGenre = new ConcurrentHashMap<>();
+    private final Map<Integer, PopularityIndex> byYear = new ConcurrentHashMap<>();
+    // Where each film is currently placed, the film itself may already be changed in place
+    private final Map<Long, Placement> placements = new ConcurrentHashMap<>();
+
+    public synchronized void put(Film film) {
+        long filmId = film.getId();
+        Integer year = film.getReleaseDate() == null ? null : film.getReleaseDate().getYear();
+        Placement placement = new Placement(year, film.getGenres().stream().mapToInt(Genre::getId).toArray());
+        Placement previous = placements.put(filmId, placement);
+        if (previous != null && !previous.equals(placement)) {
+            removeFromFiltered(filmId, previous);
+        }
+
+        int likeCount = film.getLikes().size();
+        all.put(filmId, likeCount);
+        if (year != null) {
+            byYear.computeIfAbsent(year, key -> new PopularityIndex()).put(filmId, likeCount);
+        }
+        for (int genreId : placement.getGenreIds()) {
+            byGenre.computeIfAbsent(genreId, id -> new PopularityIndex()).put(filmId, likeCount);
+        }
+    }
+
+    public synchronized void remove(long filmId) {
+        Placement placement = placements.remove(filmId);
+        if (placement != null) {
+            all.remove(filmId);
+            removeFromFiltered(filmId, placement);
+        }
+    }
+
+    public List<Long> findTop(Integer genreId, Integer year, int offset, int count) {
+        PopularityIndex index = year != null ? byYear.get(year) : genreId != null ? byGenre.get(genreId) : all;
+        if (index == null) {
+            return Collections.emptyList();
+        }
+        if (year == null || genreId == null) {
+            return index.findTop(offset, count, filmId -> true);
+        }
+        return index.findTop(offset, count, filmId -> {
+            Placement placement = placements.get(filmId);
+            return placement != null && Arrays.stream(placement.getGenreIds()).anyMatch(id -> id == genreId);
+        });
+    }
+
+    private void removeFromFiltered(long filmId, Placement placement) {
+        if (placement.getYear() != null) {
+            byYear.get(placement.getYear()).remove(filmId);
+        }
+        for (int genreId : placement.getGenreIds()) {
+            byGenre.get(genreId).remove(filmId);
+        }
+    }
+
+    @Value
+    private static class Placement {
+        Integer year;
+        int[] genreIds;
+    }
+}
@@ -0,0 +1,159 @@
+package ru.yandex.practicum.filmorate.storage.film.cache;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.BaseEntity;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.FilmLike;
+import ru.yandex.practicum.filmorate.storage.EntityCache;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.util.LongPairConsumer;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Films by id are served from the cache, every change made through this storage invalidates the film.
+// Lists (popular, pages, all) always come from the underlying storage.
+@Component
+@Qualifier("cachingFilmStorage")
+public class CachingFilmStorage implements FilmStorage {
+
+    private final FilmStorage storage;
+    private final EntityCache<Long, Film> cache;
+
+    public CachingFilmStorage(@Qualifier("databaseFilmStorage") FilmStorage storage,
+                              @Value("${filmorate.entity-cache.films:maximumSize=10000,expireAfterWrite=10m}")
+                              String spec) {
+        this.storage = storage;
+        this.cache = new EntityCache<>(spec, Film::copy);
+    }
+
+    @Override
+    public void add(Film film) {
+        storage.add(film);
+        cache.invalidate(film.getId());
+    }
+
+    @Override
+    public void addAll(Collection<Film> films) {
+        storage.addAll(films);
+        cache.invalidateAll(films.stream().map(BaseEntity::getId).collect(Collectors.toList()));
+    }
+
+    // Also invalidated when the update fails, the stored film may then differ from any cached one
+    @Override
+    public void update(Film film) {
+        try {
+            storage.update(film);
+        } finally {
+            cache.invalidate(film.getId());
+        }
+    }
+
+    @Override
+    public boolean contains(Film film) {
+        return existsById(film.getId());
+    }
+
+    @Override
+    public void remove(Film film) {
+        removeById(film.getId());
+    }
+
+    @Override
+    public void removeById(Long id) {
+        try {
+            storage.removeById(id);
+        } finally {
+            cache.remove(id);
+        }
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return cache.exists(id, storage::existsById);
+    }
+
+    @Override
+    public Optional<Film> findById(Long id) {
+        return cache.get(id, storage::findById);
+    }
+
+    @Override
+    public List<Film> findAll() {
+        return storage.findAll();
+    }
+
+    // Only the films missing from the cache are loaded, they are not cached: a bulk load isn't
+    // ordered with invalidations like a single one
+    @Override
+    public List<Film> findAllById(List<Long> ids) {
+        Map<Long, Film> films = cache.getAllPresent(ids);
+        List<Long> missingIds = ids.stream()
+                .filter(id -> !films.containsKey(id))
+                .collect(Collectors.toList());
+        if (!missingIds.isEmpty()) {
+            storage.findAllById(missingIds).forEach(film -> films.put(film.getId(), film));
+        }
+        return ids.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> findPopular(Integer genreId, Integer year, int offset, int count) {
+        return storage.findPopular(genreId, year, offset, count);
+    }
+
+    @Override
+    public List<Film> findPage(Long afterId, int limit) {
+        return storage.findPage(afterId, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<Film> action) {
+        storage.streamAll(action);
+    }
+
+    @Override
+    public void forEachLike(LongPairConsumer action) {
+        storage.forEachLike(action);
+    }
+
+    @Override
+    public boolean addLike(Long filmId, Long userId) {
+        boolean added = storage.addLike(filmId, userId);
+        if (added) {
+            cache.invalidate(filmId);
+        }
+        return added;
+    }
+
+    @Override
+    public boolean removeLike(Long filmId, Long userId) {
+        boolean removed = storage.removeLike(filmId, userId);
+        if (removed) {
+            cache.invalidate(filmId);
+        }
+        return removed;
+    }
+
+    @Override
+    public void applyLikes(Collection<FilmLike> added, Collection<FilmLike> removed) {
+        try {
+            storage.applyLikes(added, removed);
+        } finally {
+            cache.invalidateAll(Stream.concat(added.stream(), removed.stream())
+                    .map(FilmLike::getFilmId)
+                    .collect(Collectors.toSet()));
+        }
+    }
+
+    public EntityCache<Long, Film> getCache() {
+        return cache;
+    }
+}
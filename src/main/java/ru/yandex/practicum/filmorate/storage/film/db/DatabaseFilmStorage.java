@@ -2,18 +2,27 @@ package ru.yandex.practicum.filmorate.storage.film.db;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.FilmLike;
 import ru.yandex.practicum.filmorate.model.film.Genre;
 import ru.yandex.practicum.filmorate.model.film.Mpa;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.film.MpaStorage;
+import ru.yandex.practicum.filmorate.util.LongPairConsumer;
+import ru.yandex.practicum.filmorate.util.LongSet;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Component
@@ -21,24 +30,43 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class DatabaseFilmStorage implements FilmStorage {
 
+    private static final String FILM_QUERY = "SELECT f.film_id, f.name, f.description, f.mpa_id, f.release_date, " +
+            "f.duration, f.version " +
+            "FROM film f";
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
-    private final DatabaseGenreStorage databaseGenreStorage;
-    private final DatabaseMpaStorage databaseMpaStorage;
+    private final GenreStorage genreStorage;
+    private final MpaStorage mpaStorage;
 
     @Transactional
     @Override
     public void add(Film film) {
-        String query = "INSERT INTO film (film_id, name, description, mpa_id, release_date, duration) " +
-                "VALUES (?, ?, ?, ?, ?, ?)";
-        jdbcTemplate.update(query,
-                film.getId(),
-                film.getName(),
-                film.getDescription(),
-                film.getMpa().getId(),
-                film.getReleaseDate(),
-                film.getDuration());
+        addAll(List.of(film));
+    }
 
-        addGenre(film, film.getGenres());
+    @Transactional
+    @Override
+    public void addAll(Collection<Film> films) {
+        List<Object[]> filmRows = films.stream()
+                .map(film -> new Object[]{film.getId(), film.getName(), film.getDescription(), film.getMpa().getId(),
+                        film.getReleaseDate(), film.getDuration(), film.getLikes().size()})
+                .collect(Collectors.toList());
+        batchUpdate("INSERT INTO film (film_id, name, description, mpa_id, release_date, duration, like_count) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)", filmRows);
+
+        List<Object[]> genreRows = films.stream()
+                .flatMap(film -> film.getGenres().stream()
+                        .map(genre -> new Object[]{film.getId(), genre.getId(), film.getLikes().size()}))
+                .collect(Collectors.toList());
+        batchUpdate("INSERT INTO film_genre (film_id, genre_id, like_count) VALUES (?, ?, ?)", genreRows);
+
+        List<Object[]> likeRows = films.stream()
+                .flatMap(film -> film.getLikes().stream()
+                        .mapToObj(userId -> new Object[]{film.getId(), userId}))
+                .collect(Collectors.toList());
+        batchUpdate("INSERT INTO film_like (film_id, user_id) VALUES (?, ?)", likeRows);
     }
 
     @Transactional
@@ -49,48 +77,111 @@ public class DatabaseFilmStorage implements FilmStorage {
                 "    description = ?," +
                 "    mpa_id = ?," +
                 "    release_date = ?," +
-                "    duration = ?" +
-                "WHERE film_id = ?";
+                "    duration = ?," +
+                "    version = version + 1 " +
+                "WHERE film_id = ? AND version = ?";
 
-        jdbcTemplate.update(query,
+        int updated = jdbcTemplate.update(query,
                 entity.getName(),
                 entity.getDescription(),
                 entity.getMpa().getId(),
                 entity.getReleaseDate(),
                 entity.getDuration(),
-                entity.getId());
-
-        // Update Genres
-        Set<Integer> newGenreIds = entity.getGenres()
-                .stream()
-                .map(Genre::getId)
-                .collect(Collectors.toSet());
+                entity.getId(),
+                entity.getVersion());
+        if (updated == 0) {
+            throw new OptimisticLockingFailureException(
+                    String.format("Фильм с id = %d был изменен другим запросом", entity.getId()));
+        }
+        entity.setVersion(entity.getVersion() + 1);
+
+        // Genres are replaced as a whole: one delete and one batch insert, without reading the current ones
+        jdbcTemplate.update("DELETE FROM film_genre WHERE film_id = ?", entity.getId());
+        addGenres(entity.getId(), entity.getGenres());
+    }
 
-        List<Integer> existGenreIds = findGenresIdsByFilmId(entity.getId());
+    @Override
+    public boolean contains(Film film) {
+        return existsById(film.getId());
+    }
 
-        List<Integer> genreIdsToAdd = new ArrayList<>(newGenreIds);
-        genreIdsToAdd.removeAll(existGenreIds);
-        addGenres(entity, genreIdsToAdd);
+    @Override
+    public boolean existsById(Long id) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM film WHERE film_id = ?)", Boolean.class, id));
+    }
 
-        List<Integer> genreIdsToRemove = new ArrayList<>(existGenreIds);
-        genreIdsToRemove.removeAll(newGenreIds);
-        removeGenres(entity, genreIdsToRemove);
+    // The film and the user are checked inside the statement: nothing is inserted if either is missing
+    // or the like already exists.
+    @Transactional
+    @Override
+    public boolean addLike(Long filmId, Long userId) {
+        String query = "INSERT INTO film_like (film_id, user_id) " +
+                "SELECT f.film_id, u.user_id " +
+                "FROM film f " +
+                "JOIN users u ON u.user_id = ? " +
+                "WHERE f.film_id = ? " +
+                "  AND NOT EXISTS (SELECT 1 FROM film_like l WHERE l.film_id = f.film_id AND l.user_id = u.user_id)";
+
+        boolean added;
+        try {
+            added = jdbcTemplate.update(query, userId, filmId) > 0;
+        } catch (DuplicateKeyException ex) {
+            // A concurrent request has inserted the same like
+            added = false;
+        }
+
+        if (added) {
+            jdbcTemplate.update("UPDATE film SET like_count = like_count + 1 WHERE film_id = ?", filmId);
+            jdbcTemplate.update("UPDATE film_genre SET like_count = like_count + 1 WHERE film_id = ?", filmId);
+        }
+        return added;
+    }
 
-        // Update likes
-        Set<Long> newUserIds = entity.getLikes();
-        List<Long> existUserIds = findLikesOfUsersByFilmId(entity.getId());
-        List<Long> userIdsToAdd = new ArrayList<>(newUserIds);
-        userIdsToAdd.remove(existUserIds);
-        addLikes(entity, userIdsToAdd);
+    @Transactional
+    @Override
+    public boolean removeLike(Long filmId, Long userId) {
+        boolean removed = jdbcTemplate.update("DELETE FROM film_like WHERE film_id = ? AND user_id = ?",
+                filmId, userId) > 0;
+
+        if (removed) {
+            jdbcTemplate.update("UPDATE film SET like_count = like_count - 1 WHERE film_id = ?", filmId);
+            jdbcTemplate.update("UPDATE film_genre SET like_count = like_count - 1 WHERE film_id = ?", filmId);
+        }
+        return removed;
+    }
 
-        List<Long> likesToRemove = new ArrayList<>(existUserIds);
-        existUserIds.remove(newUserIds);
-        removeLikes(entity, likesToRemove);
+    // One statement per batch for the likes and one like count update per touched film, so a film
+    // liked by many users in the batch has its rows updated once
+    @Transactional
+    @Override
+    public void applyLikes(Collection<FilmLike> added, Collection<FilmLike> removed) {
+        Map<Long, Integer> deltas = new HashMap<>();
+        countChanges(deltas, added, +1, "INSERT INTO film_like (film_id, user_id) " +
+                "SELECT f.film_id, u.user_id " +
+                "FROM film f " +
+                "JOIN users u ON u.user_id = ? " +
+                "WHERE f.film_id = ? " +
+                "  AND NOT EXISTS (SELECT 1 FROM film_like l WHERE l.film_id = f.film_id AND l.user_id = u.user_id)");
+        countChanges(deltas, removed, -1, "DELETE FROM film_like WHERE user_id = ? AND film_id = ?");
+
+        List<Object[]> rows = deltas.entrySet().stream()
+                .filter(delta -> delta.getValue() != 0)
+                .map(delta -> new Object[]{delta.getValue(), delta.getKey()})
+                .collect(Collectors.toList());
+        batchUpdate("UPDATE film SET like_count = like_count + ? WHERE film_id = ?", rows);
+        batchUpdate("UPDATE film_genre SET like_count = like_count + ? WHERE film_id = ?", rows);
     }
 
     @Override
-    public boolean contains(Film film) {
-        return findById(film.getId()).isPresent();
+    public void forEachLike(LongPairConsumer action) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement("SELECT film_id, user_id FROM film_like");
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            return statement;
+        }, rs -> {
+            action.accept(rs.getLong("film_id"), rs.getLong("user_id"));
+        });
     }
 
     @Override
@@ -102,89 +193,228 @@ public class DatabaseFilmStorage implements FilmStorage {
     @Override
     public void removeById(Long id) {
         jdbcTemplate.update("DELETE FROM film_genre WHERE film_id = ?", id);
+        jdbcTemplate.update("DELETE FROM film_like WHERE film_id = ?", id);
         jdbcTemplate.update("DELETE FROM film WHERE film_id = ?", id);
     }
 
     @Override
     public Optional<Film> findById(Long id) {
-        return jdbcTemplate.query(
-                "SELECT film_id, name, description, mpa_id, release_date, duration FROM film WHERE film_id = ?",
-                this::mapFilm, id).stream().findAny();
+        return loadFilms(true, " WHERE f.film_id = ?", id).stream().findAny();
     }
 
     @Override
     public List<Film> findAll() {
-        return jdbcTemplate.query(
-                "SELECT film_id, name, description, mpa_id, release_date, duration FROM film",
-                this::mapFilm);
-    }
-
-    private Film mapFilm(ResultSet rs, int rowNum) throws SQLException {
-        Long filmId = rs.getLong("film_id");
-        String name = rs.getString("name");
-        String description = rs.getString("description");
-        Integer mpaId = rs.getInt("mpa_id");
-        Mpa mpa = databaseMpaStorage.findById(mpaId).orElse(null);
-        LocalDate releaseDate = rs.getDate("release_date").toLocalDate();
-        Integer duration = rs.getInt("duration");
-
-        Film film = Film.builder()
-                .id(filmId)
-                .name(name)
-                .description(description)
-                .mpa(mpa)
-                .duration(duration)
-                .releaseDate(releaseDate)
-                .build();
+        return loadFilms(false, "");
+    }
+
+    @Override
+    public List<Film> findAllById(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        Map<Long, Film> films = loadFilms(false, " WHERE f.film_id IN (" + placeholders + ")", ids.toArray()).stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity()));
+        return ids.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    // Each variant walks an index in rank order and stops after offset + count rows, without sorting
+    // and without touching film_like: film_like_count_idx, film_genre_like_count_idx or film_year_like_count_idx.
+    // The ranked films are then loaded like any list, with their genres and without their likes.
+    // The equality column is repeated in ORDER BY, otherwise H2 doesn't see that the index is already sorted.
+    // Genre and year together walk the year ranking and probe film_genre by primary key.
+    @Override
+    public List<Film> findPopular(Integer genreId, Integer year, int offset, int count) {
+        List<Object> params = new ArrayList<>();
+        String query;
+        if (genreId != null && year == null) {
+            query = "SELECT film_id FROM film_genre " +
+                    "WHERE genre_id = ? " +
+                    "ORDER BY genre_id, like_count DESC, film_id ";
+            params.add(genreId);
+        } else if (year != null) {
+            query = "SELECT f.film_id FROM film f " +
+                    "WHERE f.release_year = ? " +
+                    (genreId == null ? "" : "AND EXISTS (SELECT 1 FROM film_genre fg " +
+                            "WHERE fg.film_id = f.film_id AND fg.genre_id = ?) ") +
+                    "ORDER BY f.release_year, f.like_count DESC, f.film_id ";
+            params.add(year);
+            if (genreId != null) {
+                params.add(genreId);
+            }
+        } else {
+            query = "SELECT film_id FROM film ORDER BY like_count DESC, film_id ";
+        }
+        params.add(count);
+        params.add(offset);
+        return findAllById(jdbcTemplate.queryForList(query + "LIMIT ? OFFSET ?", Long.class, params.toArray()));
+    }
 
-        film.setGenres(findGenresByFilmId(film.getId()));
-        film.setLikes(new HashSet<>(findLikesOfUsersByFilmId(film.getId())));
-        return film;
+    // like_count is maintained together with film_like, so this only repairs rows changed outside the application.
+    // The copies in film_genre are repaired after the film rows they follow.
+    @Transactional
+    public int reconcileLikeCounts() {
+        int films = jdbcTemplate.update("UPDATE film f " +
+                "SET like_count = (SELECT COUNT(*) FROM film_like l WHERE l.film_id = f.film_id) " +
+                "WHERE like_count <> (SELECT COUNT(*) FROM film_like l WHERE l.film_id = f.film_id)");
+        jdbcTemplate.update("UPDATE film_genre fg " +
+                "SET like_count = (SELECT f.like_count FROM film f WHERE f.film_id = fg.film_id) " +
+                "WHERE like_count <> (SELECT f.like_count FROM film f WHERE f.film_id = fg.film_id)");
+        return films;
+    }
+
+    @Override
+    public List<Film> findPage(Long afterId, int limit) {
+        Map<Long, Film> films = queryFilms(" WHERE f.film_id > ? ORDER BY f.film_id LIMIT ?", afterId, limit);
+        if (films.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // A page is a contiguous id range, so genres are fetched for that range
+        List<Long> ids = new ArrayList<>(films.keySet());
+        loadGenres(films, " WHERE f.film_id BETWEEN ? AND ?", ids.get(0), ids.get(ids.size() - 1));
+        return new ArrayList<>(films.values());
+    }
+
+    // Films are read with a single cursor ordered by id: the genre rows of a film are adjacent,
+    // so each film is complete and handed over as soon as the next film starts.
+    @Override
+    public void streamAll(Consumer<Film> action) {
+        String query = "SELECT f.film_id, f.name, f.description, f.mpa_id, f.release_date, f.duration, " +
+                "f.version, fg.genre_id " +
+                "FROM film f " +
+                "LEFT JOIN film_genre fg ON fg.film_id = f.film_id " +
+                "ORDER BY f.film_id";
+
+        Film[] current = new Film[1];
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(query);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            return statement;
+        }, rs -> {
+            long filmId = rs.getLong("film_id");
+            if (current[0] == null || current[0].getId() != filmId) {
+                if (current[0] != null) {
+                    action.accept(current[0]);
+                }
+                current[0] = mapFilm(rs);
+            }
+
+            int genreId = rs.getInt("genre_id");
+            if (!rs.wasNull()) {
+                genreStorage.findById(genreId).ifPresent(current[0].getGenres()::add);
+            }
+        });
+
+        if (current[0] != null) {
+            action.accept(current[0]);
+        }
     }
 
-    private void addGenre(Film film, Set<Genre> genres) {
-        String query = "INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)";
-        genres.forEach(genre -> jdbcTemplate.update(query, film.getId(), genre.getId()));
+    // Films, genres and likes are fetched with set-based queries and joined in memory,
+    // so the number of round trips does not depend on the number of films.
+    // Genres and MPA are resolved from the reference storages, which are served from memory.
+    // Lists skip the likes: a popular film has a huge number of them and no response shows them.
+    private List<Film> loadFilms(boolean withLikes, String filmCondition, Object... args) {
+        Map<Long, Film> films = queryFilms(filmCondition + " ORDER BY f.film_id", args);
+        if (films.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        loadGenres(films, filmCondition, args);
+        if (withLikes) {
+            loadLikes(films, filmCondition, args);
+        }
+        return new ArrayList<>(films.values());
     }
 
-    private void addGenres(Film film, List<Integer> genreIds) {
-        String query = "INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)";
-        genreIds.forEach(genreId -> jdbcTemplate.update(query, film.getId(), genreId));
+    private Map<Long, Film> queryFilms(String querySuffix, Object... args) {
+        Map<Long, Film> films = new LinkedHashMap<>();
+        jdbcTemplate.query(FILM_QUERY + querySuffix,
+                rs -> {
+                    Film film = mapFilm(rs);
+                    films.put(film.getId(), film);
+                }, args);
+        return films;
     }
 
-    private void removeGenres(Film film, List<Integer> genreIds) {
-        String query = "DELETE FROM film_genre WHERE film_id = ? AND genre_id = ?";
-        genreIds.forEach(genreId -> jdbcTemplate.update(query, film.getId(), genreId));
+    private void loadGenres(Map<Long, Film> films, String filmCondition, Object... args) {
+        jdbcTemplate.query("SELECT fg.film_id, fg.genre_id " +
+                        "FROM film_genre fg " +
+                        "JOIN film f ON f.film_id = fg.film_id" + filmCondition,
+                rs -> {
+                    Film film = films.get(rs.getLong("film_id"));
+                    if (film != null) {
+                        genreStorage.findById(rs.getInt("genre_id")).ifPresent(film.getGenres()::add);
+                    }
+                }, args);
     }
 
-    private List<Integer> findGenresIdsByFilmId(Long filmId) {
-        return jdbcTemplate.query("SELECT genre_id FROM film_genre WHERE film_id = ?",
-                (rs, rowNum) -> rs.getInt("genre_id"),
-                filmId);
+    private void loadLikes(Map<Long, Film> films, String filmCondition, Object... args) {
+        Map<Long, LongSet.Builder> likes = new HashMap<>();
+        jdbcTemplate.query("SELECT l.film_id, l.user_id " +
+                        "FROM film_like l " +
+                        "JOIN film f ON f.film_id = l.film_id" + filmCondition,
+                rs -> {
+                    likes.computeIfAbsent(rs.getLong("film_id"), filmId -> LongSet.builder())
+                            .add(rs.getLong("user_id"));
+                }, args);
+        likes.forEach((filmId, builder) -> {
+            Film film = films.get(filmId);
+            if (film != null) {
+                film.setLikes(builder.build());
+            }
+        });
     }
 
-    private Set<Genre> findGenresByFilmId(Long filmId) {
-        return findGenresIdsByFilmId(filmId).stream()
-                .map(databaseGenreStorage::findById)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toSet());
+    private Film mapFilm(ResultSet rs) throws SQLException {
+        Mpa mpa = mpaStorage.findById(rs.getInt("mpa_id")).orElse(null);
+
+        return Film.builder()
+                .id(rs.getLong("film_id"))
+                .name(rs.getString("name"))
+                .description(rs.getString("description"))
+                .mpa(mpa)
+                .duration(rs.getInt("duration"))
+                .releaseDate(rs.getDate("release_date").toLocalDate())
+                .version(rs.getLong("version"))
+                .build();
     }
 
-    private List<Long> findLikesOfUsersByFilmId(Long filmId) {
-        return jdbcTemplate.query("SELECT user_id FROM film_like WHERE film_id = ?",
-                (rs, rowNum) -> rs.getLong("user_id"),
-                filmId);
+    // The like count is copied from the film row in the same statement
+    private void addGenres(Long filmId, Collection<Genre> genres) {
+        List<Object[]> rows = genres.stream()
+                .map(genre -> new Object[]{genre.getId(), filmId})
+                .collect(Collectors.toList());
+        batchUpdate("INSERT INTO film_genre (film_id, genre_id, like_count) " +
+                "SELECT film_id, ?, like_count FROM film WHERE film_id = ?", rows);
     }
 
-    private void addLikes(Film film, List<Long> userIds) {
-        String query = "INSERT INTO film_like (film_id, user_id) VALUES (?, ?)";
-        userIds.forEach(userId -> jdbcTemplate.update(query, film.getId(), userId));
+    // The query takes the user id and the film id of a like
+    private void countChanges(Map<Long, Integer> deltas, Collection<FilmLike> likes, int delta, String query) {
+        if (likes.isEmpty()) {
+            return;
+        }
+
+        List<FilmLike> rows = new ArrayList<>(likes);
+        int[] updated = jdbcTemplate.batchUpdate(query, rows.stream()
+                .map(like -> new Object[]{like.getUserId(), like.getFilmId()})
+                .collect(Collectors.toList()));
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] > 0) {
+                deltas.merge(rows.get(i).getFilmId(), delta, Integer::sum);
+            }
+        }
     }
 
-    private void removeLikes(Film film, List<Long> userIds) {
-        String query = "DELETE FROM film_like WHERE film_id = ? AND user_id = ?";
-        userIds.forEach(userId -> jdbcTemplate.update(query, film.getId(), userId));
+    private void batchUpdate(String query, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(query, rows);
+        }
     }
 }
 
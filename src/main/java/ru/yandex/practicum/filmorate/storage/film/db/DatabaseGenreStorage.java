@@ -5,8 +5,11 @@ import org.apache.commons.lang.NotImplementedException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.storage.DataVersion;
+import ru.yandex.practicum.filmorate.storage.ReferenceCache;
 import ru.yandex.practicum.filmorate.storage.film.GenreStorage;
 
+import javax.annotation.PostConstruct;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
@@ -16,7 +19,15 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class DatabaseGenreStorage implements GenreStorage {
 
+    private static final String QUERY = "SELECT genre_id, name FROM genre ORDER BY genre_id";
+
     private final JdbcTemplate jdbcTemplate;
+    private final ReferenceCache<Genre> cache = new ReferenceCache<>(this::loadGenres);
+
+    @PostConstruct
+    public void initCache() {
+        cache.reload();
+    }
 
     @Override
     public void add(Genre genre) {
@@ -45,14 +56,25 @@ public class DatabaseGenreStorage implements GenreStorage {
 
     @Override
     public Optional<Genre> findById(Integer id) {
-        return jdbcTemplate.query("SELECT genre_id, name FROM genre WHERE genre_id = ?",
-                this::mapGenre,
-                id).stream().findAny();
+        return cache.findById(id);
     }
 
     @Override
     public List<Genre> findAll() {
-        return jdbcTemplate.query("SELECT genre_id, name FROM genre", this::mapGenre);
+        return cache.findAll();
+    }
+
+    @Override
+    public DataVersion getVersion() {
+        return cache.getVersion();
+    }
+
+    public ReferenceCache<Genre> getCache() {
+        return cache;
+    }
+
+    private List<Genre> loadGenres() {
+        return jdbcTemplate.query(QUERY, this::mapGenre);
     }
 
     private Genre mapGenre(ResultSet resultSet, int rowNum) throws SQLException {
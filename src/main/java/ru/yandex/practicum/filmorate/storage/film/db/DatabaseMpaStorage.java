@@ -5,8 +5,11 @@ import org.apache.commons.lang.NotImplementedException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.film.Mpa;
+import ru.yandex.practicum.filmorate.storage.DataVersion;
+import ru.yandex.practicum.filmorate.storage.ReferenceCache;
 import ru.yandex.practicum.filmorate.storage.film.MpaStorage;
 
+import javax.annotation.PostConstruct;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
@@ -16,7 +19,15 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class DatabaseMpaStorage implements MpaStorage {
 
+    private static final String QUERY = "SELECT mpa_id, name, description FROM mpa ORDER BY mpa_id";
+
     private final JdbcTemplate jdbcTemplate;
+    private final ReferenceCache<Mpa> cache = new ReferenceCache<>(this::loadMpas);
+
+    @PostConstruct
+    public void initCache() {
+        cache.reload();
+    }
 
     @Override
     public void add(Mpa mpa) {
@@ -45,14 +56,25 @@ public class DatabaseMpaStorage implements MpaStorage {
 
     @Override
     public Optional<Mpa> findById(Integer id) {
-        return jdbcTemplate.query("SELECT mpa_id, name, description FROM mpa WHERE mpa_id = ?",
-                this::mapMpa,
-                id).stream().findAny();
+        return cache.findById(id);
     }
 
     @Override
     public List<Mpa> findAll() {
-        return jdbcTemplate.query("SELECT mpa_id, name, description FROM mpa", this::mapMpa);
+        return cache.findAll();
+    }
+
+    @Override
+    public DataVersion getVersion() {
+        return cache.getVersion();
+    }
+
+    public ReferenceCache<Mpa> getCache() {
+        return cache;
+    }
+
+    private List<Mpa> loadMpas() {
+        return jdbcTemplate.query(QUERY, this::mapMpa);
     }
 
     private Mpa mapMpa(ResultSet resultSet, int rowNum) throws SQLException {
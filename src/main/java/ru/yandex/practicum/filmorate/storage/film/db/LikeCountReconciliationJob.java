@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.storage.film.db;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Repairs film.like_count after manual changes or imports that bypassed the application.
+// Also runs on startup to fill the column in databases created before it was added.
+// The schedule is set by filmorate.like-count.reconcile-cron, "-" disables the scheduled runs.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LikeCountReconciliationJob {
+
+    private final DatabaseFilmStorage filmStorage;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${filmorate.like-count.reconcile-cron:0 0 4 * * *}")
+    public void reconcile() {
+        int repaired = filmStorage.reconcileLikeCounts();
+        if (repaired > 0) {
+            log.warn("Исправлено количество лайков у {} фильмов", repaired);
+        } else {
+            log.info("Количество лайков у всех фильмов совпадает с таблицей film_like");
+        }
+    }
+}
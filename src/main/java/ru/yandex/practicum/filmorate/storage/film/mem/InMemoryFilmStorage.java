@@ -2,9 +2,93 @@ package ru.yandex.practicum.filmorate.storage.film.mem;
 
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.FilmLike;
 import ru.yandex.practicum.filmorate.storage.BaseInMemoryStorage;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.PopularityRankings;
+import ru.yandex.practicum.filmorate.util.LongPairConsumer;
+import ru.yandex.practicum.filmorate.util.LongSet;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 @Component
 public class InMemoryFilmStorage extends BaseInMemoryStorage<Film, Long> implements FilmStorage {
+
+    private final PopularityRankings popularityRankings = new PopularityRankings();
+
+    public InMemoryFilmStorage() {
+        super(Film::copy);
+    }
+
+    @Override
+    protected Film keepStored(Film current, Film updated) {
+        if (current != null) {
+            updated.setLikes(current.getLikes());
+        }
+        return updated;
+    }
+
+    // The stored instance is passed, so the ranking always gets the like count that is actually stored
+    @Override
+    protected void onStored(Film film) {
+        popularityRankings.put(film);
+    }
+
+    @Override
+    protected void onRemoved(Long id) {
+        popularityRankings.remove(id);
+    }
+
+    @Override
+    public boolean addLike(Long filmId, Long userId) {
+        return changeLikes(filmId, likes -> likes.with(userId));
+    }
+
+    @Override
+    public boolean removeLike(Long filmId, Long userId) {
+        return changeLikes(filmId, likes -> likes.without(userId));
+    }
+
+    @Override
+    public void applyLikes(Collection<FilmLike> added, Collection<FilmLike> removed) {
+        added.forEach(like -> addLike(like.getFilmId(), like.getUserId()));
+        removed.forEach(like -> removeLike(like.getFilmId(), like.getUserId()));
+    }
+
+    @Override
+    public void forEachLike(LongPairConsumer action) {
+        values().forEach(film -> film.getLikes().forEach(userId -> action.accept(film.getId(), userId)));
+    }
+
+    @Override
+    public List<Film> findAllById(List<Long> ids) {
+        return ids.stream()
+                .map(this::findById)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> findPopular(Integer genreId, Integer year, int offset, int count) {
+        return findAllById(popularityRankings.findTop(genreId, year, offset, count));
+    }
+
+    // Like sets are immutable and replaced as a whole, the ranking follows in onStored under the same per-film lock
+    private boolean changeLikes(Long filmId, UnaryOperator<LongSet> change) {
+        boolean[] changed = {false};
+        updateById(filmId, film -> {
+            LongSet likes = change.apply(film.getLikes());
+            if (likes != film.getLikes()) {
+                film.setLikes(likes);
+                changed[0] = true;
+            }
+            return film;
+        });
+        return changed[0];
+    }
 }
@@ -0,0 +1,5 @@
+package ru.yandex.practicum.filmorate.storage.id;
+
+public interface IdGenerator {
+    long nextId();
+}
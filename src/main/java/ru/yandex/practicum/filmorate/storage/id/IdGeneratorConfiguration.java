@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.storage.id;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@Configuration
+public class IdGeneratorConfiguration {
+
+    // Must match INCREMENT BY of the sequences created by the Flyway migration V3__id_sequences.sql
+    private static final int BLOCK_SIZE = 50;
+
+    @Bean
+    public IdGenerator filmIdGenerator(JdbcTemplate jdbcTemplate) {
+        return new SequenceIdGenerator(jdbcTemplate, "film_id_seq", BLOCK_SIZE);
+    }
+
+    @Bean
+    public IdGenerator userIdGenerator(JdbcTemplate jdbcTemplate) {
+        return new SequenceIdGenerator(jdbcTemplate, "user_id_seq", BLOCK_SIZE);
+    }
+}
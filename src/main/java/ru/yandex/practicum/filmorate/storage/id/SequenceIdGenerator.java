@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.storage.id;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Hi-lo allocator: every NEXT VALUE of the sequence reserves a block of blockSize ids for this node.
+// Ids inside a block are handed out lock-free, only fetching the next block takes a lock
+// (a j.u.c. lock rather than a monitor, so a virtual thread waiting for the query does not pin its carrier).
+// The sequence must be declared with INCREMENT BY blockSize so blocks of different nodes never overlap;
+// moving it past rows that existed before it is left to the migration V8__id_sequences_after_existing_rows.sql.
+public class SequenceIdGenerator implements IdGenerator {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String sequence;
+    private final int blockSize;
+    private final AtomicReference<Block> block = new AtomicReference<>(new Block(0, 0));
+    private final Lock allocationLock = new ReentrantLock();
+
+    public SequenceIdGenerator(JdbcTemplate jdbcTemplate, String sequence, int blockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sequence = sequence;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public long nextId() {
+        while (true) {
+            Block current = block.get();
+            long id = current.next.getAndIncrement();
+            if (id < current.limit) {
+                return id;
+            }
+            allocateBlock(current);
+        }
+    }
+
+    private void allocateBlock(Block exhausted) {
+        allocationLock.lock();
+        try {
+            if (block.get() != exhausted) {
+                // Another thread has already allocated a new block
+                return;
+            }
+
+            long start = nextSequenceValue();
+            block.set(new Block(start, start + blockSize));
+        } finally {
+            allocationLock.unlock();
+        }
+    }
+
+    private long nextSequenceValue() {
+        Long value = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + sequence, Long.class);
+        if (value == null) {
+            throw new IllegalStateException("Последовательность " + sequence + " не вернула значение");
+        }
+        return value;
+    }
+
+    private static class Block {
+        private final AtomicLong next;
+        private final long limit;
+
+        Block(long start, long limit) {
+            this.next = new AtomicLong(start);
+            this.limit = limit;
+        }
+    }
+}
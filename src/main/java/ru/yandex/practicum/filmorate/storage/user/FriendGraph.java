@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import ru.yandex.practicum.filmorate.util.LongGraph;
+import ru.yandex.practicum.filmorate.util.LongPairConsumer;
+import ru.yandex.practicum.filmorate.util.LongSet;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// Friendships as a directed LongGraph from user ids to friend ids
+public class FriendGraph {
+
+    private final LongGraph graph = new LongGraph();
+
+    public void load(Consumer<LongPairConsumer> source) {
+        graph.load(source);
+    }
+
+    public void addFriendship(long userId, long friendId) {
+        graph.addEdge(userId, friendId);
+    }
+
+    public void removeFriendship(long userId, long friendId) {
+        graph.removeEdge(userId, friendId);
+    }
+
+    public LongSet findFriendIds(long userId) {
+        return graph.findTargets(userId);
+    }
+
+    // Users that are not friends of the user yet, ranked by the number of the user's friends who have
+    // them as a friend (descending), then by id. Candidates are collected into one array and counted
+    // after sorting it, so there are no per-candidate objects.
+    public long[] suggestFriends(long userId, int limit) {
+        LongSet friendIds = graph.findTargets(userId);
+        long[][] candidates = {new long[64]};
+        int[] size = {0};
+        friendIds.forEach(friendId -> graph.forEachTarget(friendId, candidateId -> {
+            if (candidateId == userId || friendIds.contains(candidateId)) {
+                return;
+            }
+            if (size[0] == candidates[0].length) {
+                candidates[0] = Arrays.copyOf(candidates[0], size[0] * 2);
+            }
+            candidates[0][size[0]++] = candidateId;
+        }));
+
+        long[] sorted = candidates[0];
+        Arrays.sort(sorted, 0, size[0]);
+        long[] topIds = new long[limit];
+        int[] topCounts = new int[limit];
+        int topSize = 0;
+        for (int start = 0; start < size[0]; ) {
+            int end = start;
+            while (end < size[0] && sorted[end] == sorted[start]) {
+                end++;
+            }
+            // Runs come in ascending id order, so a tie never displaces an earlier candidate
+            int count = end - start;
+            if (topSize < limit || count > topCounts[topSize - 1]) {
+                int position = Math.min(topSize, limit - 1);
+                while (position > 0 && topCounts[position - 1] < count) {
+                    topIds[position] = topIds[position - 1];
+                    topCounts[position] = topCounts[position - 1];
+                    position--;
+                }
+                topIds[position] = sorted[start];
+                topCounts[position] = count;
+                topSize = Math.min(topSize + 1, limit);
+            }
+            start = end;
+        }
+        return Arrays.copyOf(topIds, topSize);
+    }
+}
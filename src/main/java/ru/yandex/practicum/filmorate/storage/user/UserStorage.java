@@ -2,9 +2,41 @@ package ru.yandex.practicum.filmorate.storage.user;
 
 import ru.yandex.practicum.filmorate.model.user.User;
 import ru.yandex.practicum.filmorate.storage.Storage;
+import ru.yandex.practicum.filmorate.util.LongPairConsumer;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface UserStorage extends Storage<User, Long> {
     Optional<User> findByEmail(String email);
+
+    // Returns the emails from the given ones that are already taken
+    Set<String> findExistingEmails(Collection<String> emails);
+
+    // Keyset pagination: up to limit users with id greater than afterId, ordered by id
+    List<User> findPage(Long afterId, int limit);
+
+    // Passes every user to the action without materializing all users; friendships are not loaded
+    void streamAll(Consumer<User> action);
+
+    // Users in the order of the given ids, without their friendships; missing ids are skipped
+    List<User> findAllById(List<Long> ids);
+
+    // Passes every friendship as (user id, friend id) ordered by user id and then by friend id
+    void forEachFriendship(LongPairConsumer action);
+
+    // Friends of the user ordered by id, without their own friendships
+    List<User> findFriends(Long userId);
+
+    // Users that are friends of both users ordered by id, without their own friendships
+    List<User> findCommonFriends(Long firstUserId, Long secondUserId);
+
+    // Returns true if the friendship was added, false if it already exists or either user is missing
+    boolean addFriendship(Long userId, Long friendId);
+
+    // Returns true if the friendship was removed, false if there was nothing to remove
+    boolean removeFriendship(Long userId, Long friendId);
 }
@@ -0,0 +1,154 @@
+package ru.yandex.practicum.filmorate.storage.user.cache;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.BaseEntity;
+import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.storage.EntityCache;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.LongPairConsumer;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+// Users by id are served from the cache, every change made through this storage invalidates the user.
+// Lookups by email and lists always come from the underlying storage: findAllById, friends and
+// common friends return users without friendships, they can't be mixed with cached ones.
+@Component
+@Qualifier("cachingUserStorage")
+public class CachingUserStorage implements UserStorage {
+
+    private final UserStorage storage;
+    private final EntityCache<Long, User> cache;
+
+    public CachingUserStorage(@Qualifier("databaseUserStorage") UserStorage storage,
+                              @Value("${filmorate.entity-cache.users:maximumSize=10000,expireAfterWrite=10m}")
+                              String spec) {
+        this.storage = storage;
+        this.cache = new EntityCache<>(spec, User::copy);
+    }
+
+    @Override
+    public void add(User user) {
+        storage.add(user);
+        cache.invalidate(user.getId());
+    }
+
+    @Override
+    public void addAll(Collection<User> users) {
+        storage.addAll(users);
+        cache.invalidateAll(users.stream().map(BaseEntity::getId).collect(Collectors.toList()));
+    }
+
+    // Also invalidated when the update fails, the stored user may then differ from any cached one
+    @Override
+    public void update(User user) {
+        try {
+            storage.update(user);
+        } finally {
+            cache.invalidate(user.getId());
+        }
+    }
+
+    @Override
+    public boolean contains(User user) {
+        return existsById(user.getId());
+    }
+
+    @Override
+    public void remove(User user) {
+        removeById(user.getId());
+    }
+
+    @Override
+    public void removeById(Long id) {
+        try {
+            storage.removeById(id);
+        } finally {
+            cache.remove(id);
+        }
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return cache.exists(id, storage::existsById);
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        return cache.get(id, storage::findById);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return storage.findAll();
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return storage.findByEmail(email);
+    }
+
+    @Override
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        return storage.findExistingEmails(emails);
+    }
+
+    @Override
+    public List<User> findPage(Long afterId, int limit) {
+        return storage.findPage(afterId, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<User> action) {
+        storage.streamAll(action);
+    }
+
+    @Override
+    public List<User> findAllById(List<Long> ids) {
+        return storage.findAllById(ids);
+    }
+
+    @Override
+    public void forEachFriendship(LongPairConsumer action) {
+        storage.forEachFriendship(action);
+    }
+
+    @Override
+    public List<User> findFriends(Long userId) {
+        return storage.findFriends(userId);
+    }
+
+    @Override
+    public List<User> findCommonFriends(Long firstUserId, Long secondUserId) {
+        return storage.findCommonFriends(firstUserId, secondUserId);
+    }
+
+    // Friendships are one-way, only the user's own set changes
+    @Override
+    public boolean addFriendship(Long userId, Long friendId) {
+        boolean added = storage.addFriendship(userId, friendId);
+        if (added) {
+            cache.invalidate(userId);
+        }
+        return added;
+    }
+
+    @Override
+    public boolean removeFriendship(Long userId, Long friendId) {
+        boolean removed = storage.removeFriendship(userId, friendId);
+        if (removed) {
+            cache.invalidate(userId);
+        }
+        return removed;
+    }
+
+    public EntityCache<Long, User> getCache() {
+        return cache;
+    }
+}
@@ -2,17 +2,23 @@ package ru.yandex.practicum.filmorate.storage.user.db;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.user.Friendship;
+import ru.yandex.practicum.filmorate.model.user.FriendshipSet;
 import ru.yandex.practicum.filmorate.model.user.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.LongPairConsumer;
 
+import java.sql.Date;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Component
@@ -20,22 +26,33 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class DatabaseUserStorage implements UserStorage {
 
+    private static final String USER_QUERY = "SELECT u.user_id, u.email, u.login, u.name, u.birthday, u.version " +
+            "FROM users u";
+    private static final int STREAM_FETCH_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
 
     @Transactional
     @Override
     public void add(User user) {
-        String query = "INSERT INTO users (user_id, email, login, name, birthday) " +
-                "VALUES (?, ?, ?, ?, ?)";
+        addAll(List.of(user));
+    }
 
-        jdbcTemplate.update(query,
-                user.getId(),
-                user.getEmail(),
-                user.getLogin(),
-                user.getName(),
-                user.getBirthday());
+    @Transactional
+    @Override
+    public void addAll(Collection<User> users) {
+        List<Object[]> userRows = users.stream()
+                .map(user -> new Object[]{user.getId(), user.getEmail(), user.getLogin(), user.getName(),
+                        user.getBirthday()})
+                .collect(Collectors.toList());
+        batchUpdate("INSERT INTO users (user_id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)", userRows);
 
-        user.getFriendships().forEach(friendship -> addFriendship(user, friendship));
+        List<Object[]> friendshipRows = users.stream()
+                .flatMap(user -> user.getFriendships().stream()
+                        .map(friendship -> new Object[]{user.getId(), friendship.getFriendId(),
+                                friendship.isConfirmed()}))
+                .collect(Collectors.toList());
+        batchUpdate("INSERT INTO user_friend (user_id, friend_id, confirmed) VALUES (?, ?, ?)", friendshipRows);
     }
 
     @Transactional
@@ -45,45 +62,58 @@ public class DatabaseUserStorage implements UserStorage {
                 "SET email = ?," +
                 "    login = ?," +
                 "    name = ?," +
-                "    birthday = ?" +
-                "WHERE user_id = ?";
+                "    birthday = ?," +
+                "    version = version + 1 " +
+                "WHERE user_id = ? AND version = ?";
 
-        jdbcTemplate.update(query,
+        int updated = jdbcTemplate.update(query,
                 user.getEmail(),
                 user.getLogin(),
                 user.getName(),
                 user.getBirthday(),
-                user.getId());
-
-        // Process friendships
-        //
-        Set<Friendship> newFriendships = user.getFriendships();
-        Set<Friendship> existFriendships = findFriendshipsByUserId(user.getId());
+                user.getId(),
+                user.getVersion());
+        if (updated == 0) {
+            throw new OptimisticLockingFailureException(
+                    String.format("Пользователь с id = %d был изменен другим запросом", user.getId()));
+        }
+        user.setVersion(user.getVersion() + 1);
+    }
 
-        // Remove friendships
-        Set<Friendship> toRemoveFriendships = new HashSet<>(existFriendships);
-        toRemoveFriendships.removeAll(newFriendships);
-        toRemoveFriendships.forEach(f -> removeFriendship(user, f));
+    // The friend and the user are checked inside the statement: nothing is inserted if either is missing
+    // or the friendship already exists.
+    @Override
+    public boolean addFriendship(Long userId, Long friendId) {
+        String query = "INSERT INTO user_friend (user_id, friend_id, confirmed) " +
+                "SELECT u.user_id, f.user_id, FALSE " +
+                "FROM users u " +
+                "JOIN users f ON f.user_id = ? " +
+                "WHERE u.user_id = ? " +
+                "  AND NOT EXISTS (SELECT 1 FROM user_friend uf WHERE uf.user_id = u.user_id AND uf.friend_id = f.user_id)";
 
-        // Update friendships (only if confirmation status was changed)
-        // Be aware of Friendship equals / hashCode, it uses only friendId
-        Set<Friendship> toUpdateFriendships = new HashSet<>(existFriendships);
-        toUpdateFriendships.retainAll(newFriendships);
-        Map<Long, Boolean> newConfirmationsStatuses = newFriendships.stream()
-                .collect(Collectors.toMap(Friendship::getFriendId, Friendship::isConfirmed));
-        toUpdateFriendships.stream()
-                .filter(f -> f.isConfirmed() != newConfirmationsStatuses.get(f.getFriendId()))
-                .forEach(f -> updateFriendship(user, f));
+        try {
+            return jdbcTemplate.update(query, friendId, userId) > 0;
+        } catch (DuplicateKeyException ex) {
+            // A concurrent request has inserted the same friendship
+            return false;
+        }
+    }
 
-        // Add new friendships
-        Set<Friendship> toAddFriendships = new HashSet<>(newFriendships);
-        toAddFriendships.removeAll(existFriendships);
-        toAddFriendships.forEach(f -> addFriendship(user, f));
+    @Override
+    public boolean removeFriendship(Long userId, Long friendId) {
+        return jdbcTemplate.update("DELETE FROM user_friend WHERE user_id = ? AND friend_id = ?",
+                userId, friendId) > 0;
     }
 
     @Override
     public boolean contains(User user) {
-        return findById(user.getId()).isPresent();
+        return existsById(user.getId());
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM users WHERE user_id = ?)", Boolean.class, id));
     }
 
     @Override
@@ -100,42 +130,146 @@ public class DatabaseUserStorage implements UserStorage {
 
     @Override
     public Optional<User> findById(Long id) {
-        return jdbcTemplate.query(
-                "SELECT user_id, email, login, name, birthday FROM users WHERE user_id = ?",
-                this::mapUser, id).stream().findAny();
+        return loadUsers(" WHERE u.user_id = ?", id).stream().findAny();
     }
 
     @Override
     public Optional<User> findByEmail(String email) {
-        return jdbcTemplate.query(
-                "SELECT user_id, email, login, name, birthday FROM users WHERE email = ?",
-                this::mapUser, email).stream().findAny();
+        return loadUsers(" WHERE u.email = ?", email).stream().findAny();
+    }
+
+    @Override
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        String placeholders = String.join(",", Collections.nCopies(emails.size(), "?"));
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT email FROM users WHERE email IN (" + placeholders + ")", String.class, emails.toArray()));
     }
 
     @Override
     public List<User> findAll() {
-        return jdbcTemplate.query(
-                "SELECT user_id, email, login, name, birthday FROM users",
-                this::mapUser);
-    }
-
-    private User mapUser(ResultSet rs, int rowNum) throws SQLException {
-        Long userId = rs.getLong("user_id");
-        String email = rs.getString("email");
-        String login = rs.getString("login");
-        String name = rs.getString("name");
-        LocalDate birthday = rs.getDate("birthday").toLocalDate();
-
-        User user = User.builder()
-                .id(userId)
-                .email(email)
-                .login(login)
-                .name(name)
-                .birthday(birthday)
-                .build();
+        return loadUsers("");
+    }
+
+    @Override
+    public List<User> findPage(Long afterId, int limit) {
+        Map<Long, User> users = queryUsers(" WHERE u.user_id > ? ORDER BY u.user_id LIMIT ?", afterId, limit);
+        if (users.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // A page is a contiguous id range, so friendships are fetched for that range
+        List<Long> ids = new ArrayList<>(users.keySet());
+        loadFriendships(users, " WHERE u.user_id BETWEEN ? AND ?", ids.get(0), ids.get(ids.size() - 1));
+        return new ArrayList<>(users.values());
+    }
+
+    @Override
+    public List<User> findAllById(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
 
-        user.setFriendships(findFriendshipsByUserId(userId));
-        return user;
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        Map<Long, User> users = queryUsers(" WHERE u.user_id IN (" + placeholders + ")", ids.toArray());
+        return ids.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    // Read with the primary key order of user_friend and a fetch size, the rows are not collected
+    @Override
+    public void forEachFriendship(LongPairConsumer action) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement("SELECT user_id, friend_id " +
+                    "FROM user_friend " +
+                    "ORDER BY user_id, friend_id");
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            return statement;
+        }, rs -> {
+            action.accept(rs.getLong("user_id"), rs.getLong("friend_id"));
+        });
+    }
+
+    @Override
+    public List<User> findFriends(Long userId) {
+        return new ArrayList<>(queryUsers(" JOIN user_friend uf ON uf.friend_id = u.user_id " +
+                "WHERE uf.user_id = ? " +
+                "ORDER BY u.user_id", userId).values());
+    }
+
+    // The intersection is computed by the database with the primary key of user_friend on both sides
+    @Override
+    public List<User> findCommonFriends(Long firstUserId, Long secondUserId) {
+        return new ArrayList<>(queryUsers(" JOIN user_friend f1 ON f1.friend_id = u.user_id AND f1.user_id = ? " +
+                "JOIN user_friend f2 ON f2.friend_id = u.user_id AND f2.user_id = ? " +
+                "ORDER BY u.user_id", firstUserId, secondUserId).values());
+    }
+
+    @Override
+    public void streamAll(Consumer<User> action) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(USER_QUERY + " ORDER BY u.user_id");
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            return statement;
+        }, rs -> {
+            action.accept(mapUser(rs));
+        });
+    }
+
+    // Users and their friendships are fetched with two set-based queries and joined in memory
+    private List<User> loadUsers(String userCondition, Object... args) {
+        Map<Long, User> users = queryUsers(userCondition + " ORDER BY u.user_id", args);
+        if (users.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        loadFriendships(users, userCondition, args);
+        return new ArrayList<>(users.values());
+    }
+
+    private Map<Long, User> queryUsers(String querySuffix, Object... args) {
+        Map<Long, User> users = new LinkedHashMap<>();
+        jdbcTemplate.query(USER_QUERY + querySuffix,
+                rs -> {
+                    User user = mapUser(rs);
+                    users.put(user.getId(), user);
+                }, args);
+        return users;
+    }
+
+    private void loadFriendships(Map<Long, User> users, String userCondition, Object... args) {
+        Map<Long, FriendshipSet.Builder> friendships = new HashMap<>();
+        jdbcTemplate.query("SELECT uf.user_id, uf.friend_id, uf.confirmed " +
+                        "FROM user_friend uf " +
+                        "JOIN users u ON u.user_id = uf.user_id" + userCondition,
+                rs -> {
+                    friendships.computeIfAbsent(rs.getLong("user_id"), userId -> FriendshipSet.builder())
+                            .add(mapFriendship(rs, 0));
+                }, args);
+        friendships.forEach((userId, builder) -> {
+            User user = users.get(userId);
+            if (user != null) {
+                user.setFriendships(builder.build());
+            }
+        });
+    }
+
+    private User mapUser(ResultSet rs) throws SQLException {
+        Date birthday = rs.getDate("birthday");
+
+        return User.builder()
+                .id(rs.getLong("user_id"))
+                .email(rs.getString("email"))
+                .login(rs.getString("login"))
+                .name(rs.getString("name"))
+                .birthday(birthday == null ? null : birthday.toLocalDate())
+                .version(rs.getLong("version"))
+                .build();
     }
 
     private Friendship mapFriendship(ResultSet rs, int rowNum) throws SQLException {
@@ -147,25 +281,10 @@ public class DatabaseUserStorage implements UserStorage {
                 .build();
     }
 
-    private Set<Friendship> findFriendshipsByUserId(Long userId) {
-        return new HashSet<>(jdbcTemplate.query("SELECT friend_id, confirmed FROM user_friend WHERE user_id = ?",
-                this::mapFriendship,
-                userId));
-    }
-
-    private void addFriendship(User user, Friendship friendship) {
-        String query = "INSERT INTO user_friend (user_id, friend_id, confirmed) VALUES (?, ?, ?)";
-        jdbcTemplate.update(query, user.getId(), friendship.getFriendId(), friendship.isConfirmed());
-    }
-
-    private void updateFriendship(User user, Friendship friendship) {
-        String query = "UPDATE user_friend SET confirmed = ? WHERE user_id = ? AND friend_id = ?";
-        jdbcTemplate.update(query, user.getId(), friendship.getFriendId(), friendship.isConfirmed());
-    }
-
-    private void removeFriendship(User user, Friendship friendship) {
-        String query = "DELETE FROM user_friend WHERE user_id = ? AND friend_id = ?";
-        jdbcTemplate.update(query, user.getId(), friendship.getFriendId());
+    private void batchUpdate(String query, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(query, rows);
+        }
     }
 }
 
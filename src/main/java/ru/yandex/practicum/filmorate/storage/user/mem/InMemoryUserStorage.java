@@ -1,17 +1,115 @@
 package ru.yandex.practicum.filmorate.storage.user.mem;
 
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.user.Friendship;
+import ru.yandex.practicum.filmorate.model.user.FriendshipSet;
 import ru.yandex.practicum.filmorate.model.user.User;
 import ru.yandex.practicum.filmorate.storage.BaseInMemoryStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.LongPairConsumer;
+import ru.yandex.practicum.filmorate.util.LongSet;
 
-import java.util.Optional;
+import java.util.*;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 @Component
 public class InMemoryUserStorage extends BaseInMemoryStorage<User, Long> implements UserStorage {
+
+    private static final String EMAIL_INDEX = "email";
+
+    public InMemoryUserStorage() {
+        super(User::copy);
+        declareUniqueIndex(EMAIL_INDEX, User::getEmail);
+    }
+
+    @Override
     public Optional<User> findByEmail(String email) {
-        return findAll().stream()
-                .filter(user -> user.getEmail().equals(email))
-                .findAny();
+        return findByUniqueKey(EMAIL_INDEX, email);
+    }
+
+    @Override
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        return emails.stream()
+                .filter(email -> containsUniqueKey(EMAIL_INDEX, email))
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public List<User> findAllById(List<Long> ids) {
+        return ids.stream()
+                .map(this::findById)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void forEachFriendship(LongPairConsumer action) {
+        values().stream()
+                .sorted(Comparator.comparing(User::getId))
+                .forEach(user -> user.getFriendships().getFriendIds()
+                        .forEach(friendId -> action.accept(user.getId(), friendId)));
+    }
+
+    @Override
+    public List<User> findFriends(Long userId) {
+        return findById(userId)
+                .map(user -> findUsers(user.getFriendships().getFriendIds()))
+                .orElse(Collections.emptyList());
+    }
+
+    @Override
+    public List<User> findCommonFriends(Long firstUserId, Long secondUserId) {
+        Optional<User> firstUser = findById(firstUserId);
+        Optional<User> secondUser = findById(secondUserId);
+        if (firstUser.isEmpty() || secondUser.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return findUsers(firstUser.get().getFriendships().getFriendIds()
+                .intersect(secondUser.get().getFriendships().getFriendIds()));
+    }
+
+    @Override
+    public boolean addFriendship(Long userId, Long friendId) {
+        if (!existsById(friendId)) {
+            return false;
+        }
+
+        return changeFriendships(userId, friendships -> friendships.with(Friendship.builder().friendId(friendId).build()));
+    }
+
+    @Override
+    public boolean removeFriendship(Long userId, Long friendId) {
+        return changeFriendships(userId, friendships -> friendships.without(friendId));
+    }
+
+    @Override
+    protected User keepStored(User current, User updated) {
+        if (current != null) {
+            updated.setFriendships(current.getFriendships());
+        }
+        return updated;
+    }
+
+    // Friendship sets are immutable and replaced as a whole, so readers never see a set being modified
+    private boolean changeFriendships(Long userId, UnaryOperator<FriendshipSet> change) {
+        boolean[] changed = {false};
+        updateById(userId, user -> {
+            FriendshipSet friendships = change.apply(user.getFriendships());
+            if (friendships != user.getFriendships()) {
+                user.setFriendships(friendships);
+                changed[0] = true;
+            }
+            return user;
+        });
+        return changed[0];
+    }
+
+    private List<User> findUsers(LongSet ids) {
+        return ids.stream()
+                .mapToObj(this::findById)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toList());
     }
 }
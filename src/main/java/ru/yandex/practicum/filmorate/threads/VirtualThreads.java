@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.threads;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+// The build targets Java 11 by default, so the Java 21 API is called reflectively
+public final class VirtualThreads {
+
+    private static final int MIN_JAVA_VERSION = 21;
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return Runtime.version().feature() >= MIN_JAVA_VERSION;
+    }
+
+    // Starts a new virtual thread named prefix + number for every task
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        if (!isSupported()) {
+            throw new IllegalStateException(String.format(
+                    "Виртуальные потоки требуют Java %d, запущено на Java %d",
+                    MIN_JAVA_VERSION, Runtime.version().feature()));
+        }
+
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException
+                 | InvocationTargetException ex) {
+            throw new IllegalStateException("Не удалось создать исполнитель на виртуальных потоках", ex);
+        }
+    }
+}
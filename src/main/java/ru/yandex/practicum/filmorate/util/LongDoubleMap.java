@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+
+// Open addressing hash map from long keys to double sums for scoring loops: two primitive arrays
+// with linear probing instead of a HashMap<Long, Double> with two boxed objects per entry.
+// Not thread-safe, meant to be used inside one computation.
+public final class LongDoubleMap {
+
+    private static final long EMPTY_KEY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private double[] values;
+    private int size;
+
+    public LongDoubleMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        keys = new long[capacity];
+        values = new double[capacity];
+        Arrays.fill(keys, EMPTY_KEY);
+    }
+
+    // Keys must not be Long.MIN_VALUE, which marks free slots
+    public void add(long key, double delta) {
+        int slot = find(keys, key);
+        values[slot] += delta;
+        if (keys[slot] == EMPTY_KEY) {
+            keys[slot] = key;
+            size++;
+            if (size * 2 > keys.length) {
+                grow();
+            }
+        }
+    }
+
+    public double get(long key) {
+        int slot = find(keys, key);
+        return keys[slot] == EMPTY_KEY ? 0 : values[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(Entries action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY_KEY) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        double[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new double[oldValues.length * 2];
+        Arrays.fill(keys, EMPTY_KEY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY_KEY) {
+                int slot = find(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int find(long[] keys, long key) {
+        int mask = keys.length - 1;
+        int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+        while (keys[slot] != EMPTY_KEY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    @FunctionalInterface
+    public interface Entries {
+        void accept(long key, double value);
+    }
+}
@@ -0,0 +1,182 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.UnaryOperator;
+
+// Directed graph over long ids in compressed sparse row layout: the targets of sourceIds[i] are
+// targetIds[offsets[i]..offsets[i + 1]), sorted. Three primitive arrays instead of a map of sets,
+// a lookup is one binary search. Changes go to an overlay of whole target sets per source, which is
+// merged into new arrays once it grows large. Readers take the current state without locking.
+public class LongGraph {
+
+    private static final int OVERLAY_LIMIT = 4096;
+
+    private volatile State state = new State(new long[0], new int[1], new long[0]);
+
+    // Edges may come in any order but must not repeat
+    public synchronized void load(Consumer<LongPairConsumer> source) {
+        Builder builder = new Builder();
+        source.accept(builder::add);
+        state = builder.build();
+    }
+
+    public synchronized void addEdge(long sourceId, long targetId) {
+        change(sourceId, targetIds -> targetIds.with(targetId));
+    }
+
+    public synchronized void removeEdge(long sourceId, long targetId) {
+        change(sourceId, targetIds -> targetIds.without(targetId));
+    }
+
+    public LongSet findTargets(long sourceId) {
+        return state.targets(sourceId);
+    }
+
+    public int countTargets(long sourceId) {
+        return state.count(sourceId);
+    }
+
+    public void forEachTarget(long sourceId, LongConsumer action) {
+        state.forEachTarget(sourceId, action);
+    }
+
+    // Passes every edge, in no particular order
+    public void forEachEdge(LongPairConsumer action) {
+        state.forEachEdge(action);
+    }
+
+    private void change(long sourceId, UnaryOperator<LongSet> change) {
+        State current = state;
+        LongSet targetIds = current.targets(sourceId);
+        LongSet changed = change.apply(targetIds);
+        if (changed == targetIds) {
+            return;
+        }
+
+        current.overlay.put(sourceId, changed);
+        if (current.overlay.size() > OVERLAY_LIMIT) {
+            state = current.compact();
+        }
+    }
+
+    private static class State {
+        private final long[] sourceIds;
+        private final int[] offsets;
+        private final long[] targetIds;
+        private final Map<Long, LongSet> overlay = new ConcurrentHashMap<>();
+
+        State(long[] sourceIds, int[] offsets, long[] targetIds) {
+            this.sourceIds = sourceIds;
+            this.offsets = offsets;
+            this.targetIds = targetIds;
+        }
+
+        LongSet targets(long sourceId) {
+            LongSet changed = overlay.get(sourceId);
+            if (changed != null) {
+                return changed;
+            }
+
+            int index = Arrays.binarySearch(sourceIds, sourceId);
+            if (index < 0) {
+                return LongSet.empty();
+            }
+            return LongSet.of(Arrays.copyOfRange(targetIds, offsets[index], offsets[index + 1]));
+        }
+
+        int count(long sourceId) {
+            LongSet changed = overlay.get(sourceId);
+            if (changed != null) {
+                return changed.size();
+            }
+
+            int index = Arrays.binarySearch(sourceIds, sourceId);
+            return index < 0 ? 0 : offsets[index + 1] - offsets[index];
+        }
+
+        void forEachTarget(long sourceId, LongConsumer action) {
+            LongSet changed = overlay.get(sourceId);
+            if (changed != null) {
+                changed.forEach(action);
+                return;
+            }
+
+            int index = Arrays.binarySearch(sourceIds, sourceId);
+            if (index >= 0) {
+                for (int i = offsets[index]; i < offsets[index + 1]; i++) {
+                    action.accept(targetIds[i]);
+                }
+            }
+        }
+
+        // Merges the overlay into new arrays
+        State compact() {
+            Builder builder = new Builder();
+            forEachEdge(builder::add);
+            return builder.build();
+        }
+
+        void forEachEdge(LongPairConsumer action) {
+            for (int i = 0; i < sourceIds.length; i++) {
+                if (!overlay.containsKey(sourceIds[i])) {
+                    for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                        action.accept(sourceIds[i], targetIds[j]);
+                    }
+                }
+            }
+            overlay.forEach((sourceId, changed) -> changed.forEach(targetId -> action.accept(sourceId, targetId)));
+        }
+    }
+
+    // Collects edges as two parallel arrays and groups them by source with a counting pass,
+    // so unordered input is sorted without boxing
+    private static class Builder {
+        private long[] sources = new long[16];
+        private long[] targets = new long[16];
+        private int size;
+
+        void add(long sourceId, long targetId) {
+            if (size == sources.length) {
+                sources = Arrays.copyOf(sources, size * 2);
+                targets = Arrays.copyOf(targets, size * 2);
+            }
+            sources[size] = sourceId;
+            targets[size] = targetId;
+            size++;
+        }
+
+        State build() {
+            long[] sourceIds = Arrays.copyOf(sources, size);
+            Arrays.sort(sourceIds);
+            int sourceCount = 0;
+            for (int i = 0; i < size; i++) {
+                if (sourceCount == 0 || sourceIds[sourceCount - 1] != sourceIds[i]) {
+                    sourceIds[sourceCount++] = sourceIds[i];
+                }
+            }
+            sourceIds = Arrays.copyOf(sourceIds, sourceCount);
+
+            int[] offsets = new int[sourceCount + 1];
+            for (int i = 0; i < size; i++) {
+                offsets[Arrays.binarySearch(sourceIds, sources[i]) + 1]++;
+            }
+            for (int i = 0; i < sourceCount; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+
+            long[] targetIds = new long[size];
+            int[] next = Arrays.copyOf(offsets, sourceCount);
+            for (int i = 0; i < size; i++) {
+                targetIds[next[Arrays.binarySearch(sourceIds, sources[i])]++] = targets[i];
+            }
+            for (int i = 0; i < sourceCount; i++) {
+                Arrays.sort(targetIds, offsets[i], offsets[i + 1]);
+            }
+            return new State(sourceIds, offsets, targetIds);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.util;
+
+// Consumer of two primitive longs, e.g. the ends of an edge, without boxing
+@FunctionalInterface
+public interface LongPairConsumer {
+    void accept(long first, long second);
+}
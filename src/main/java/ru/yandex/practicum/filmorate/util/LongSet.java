@@ -0,0 +1,186 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+
+// Immutable set of primitive longs kept in a sorted array: 8 bytes per element instead of ~50 for a HashSet<Long>,
+// membership is a binary search and intersections are linear merges, all without boxing.
+// Changes return a new set, so a set can be shared between threads and replaced atomically.
+public final class LongSet {
+
+    private static final LongSet EMPTY = new LongSet(new long[0]);
+
+    private final long[] values;
+
+    private LongSet(long[] values) {
+        this.values = values;
+    }
+
+    public static LongSet empty() {
+        return EMPTY;
+    }
+
+    public static LongSet of(long... values) {
+        return builder(values.length).addAll(values).build();
+    }
+
+    public static Builder builder() {
+        return new Builder(16);
+    }
+
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public boolean isEmpty() {
+        return values.length == 0;
+    }
+
+    public boolean contains(long value) {
+        return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    public LongSet with(long value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index >= 0) {
+            return this;
+        }
+
+        int insertionPoint = -index - 1;
+        long[] result = new long[values.length + 1];
+        System.arraycopy(values, 0, result, 0, insertionPoint);
+        result[insertionPoint] = value;
+        System.arraycopy(values, insertionPoint, result, insertionPoint + 1, values.length - insertionPoint);
+        return new LongSet(result);
+    }
+
+    public LongSet without(long value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index < 0) {
+            return this;
+        }
+        if (values.length == 1) {
+            return EMPTY;
+        }
+
+        long[] result = new long[values.length - 1];
+        System.arraycopy(values, 0, result, 0, index);
+        System.arraycopy(values, index + 1, result, index, values.length - index - 1);
+        return new LongSet(result);
+    }
+
+    public LongSet intersect(LongSet other) {
+        long[] result = new long[Math.min(values.length, other.values.length)];
+        int size = merge(other, result);
+        return size == 0 ? EMPTY : new LongSet(Arrays.copyOf(result, size));
+    }
+
+    public int intersectionSize(LongSet other) {
+        return merge(other, null);
+    }
+
+    public void forEach(LongConsumer action) {
+        for (long value : values) {
+            action.accept(value);
+        }
+    }
+
+    public LongStream stream() {
+        return Arrays.stream(values);
+    }
+
+    public long[] toArray() {
+        return values.clone();
+    }
+
+    // Counts common elements of two sorted arrays and copies them to target if it is given
+    private int merge(LongSet other, long[] target) {
+        long[] left = values;
+        long[] right = other.values;
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                if (target != null) {
+                    target[size] = left[i];
+                }
+                size++;
+                i++;
+                j++;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return Arrays.equals(values, ((LongSet) o).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(values);
+    }
+
+    // Accepts values in any order; sorting and deduplication happen once in build()
+    public static final class Builder {
+        private long[] values;
+        private int size;
+
+        private Builder(int expectedSize) {
+            values = new long[Math.max(expectedSize, 1)];
+        }
+
+        public Builder add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+            return this;
+        }
+
+        public Builder addAll(long... values) {
+            for (long value : values) {
+                add(value);
+            }
+            return this;
+        }
+
+        public LongSet build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+
+            long[] result = Arrays.copyOf(values, size);
+            Arrays.sort(result);
+            int unique = 1;
+            for (int i = 1; i < result.length; i++) {
+                if (result[i] != result[unique - 1]) {
+                    result[unique++] = result[i];
+                }
+            }
+            return new LongSet(unique == result.length ? result : Arrays.copyOf(result, unique));
+        }
+    }
+}
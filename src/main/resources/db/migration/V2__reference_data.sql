@@ -1,4 +1,4 @@
-INSERT INTO genre (genre_id, name)
+MERGE INTO genre (genre_id, name) KEY (genre_id)
 VALUES (1, 'Комедия'),
        (2, 'Драма'),
        (3, 'Мультфильм'),
@@ -6,9 +6,9 @@ VALUES (1, 'Комедия'),
        (5, 'Документальный'),
        (6, 'Боевик');
 
-INSERT INTO mpa (mpa_id, name, description)
+MERGE INTO mpa (mpa_id, name, description) KEY (mpa_id)
 VALUES (1, 'G', 'нет возрастных ограничений'),
        (2, 'PG', 'детям рекомендуется смотреть фильм с родителями'),
        (3, 'PG-13', 'детям до 13 лет просмотр не желателен'),
        (4, 'R', 'лицам до 17 лет просматривать фильм можно только в присутствии взрослого'),
-       (5, 'NC-17', 'лицам до 18 лет просмотр запрещён');
\ No newline at end of file
+       (5, 'NC-17', 'лицам до 18 лет просмотр запрещён');
@@ -0,0 +1,3 @@
+CREATE SEQUENCE IF NOT EXISTS film_id_seq START WITH 1 INCREMENT BY 50;
+
+CREATE SEQUENCE IF NOT EXISTS user_id_seq START WITH 1 INCREMENT BY 50;
@@ -0,0 +1,6 @@
+ALTER TABLE film ADD COLUMN IF NOT EXISTS like_count INTEGER NOT NULL DEFAULT 0;
+
+UPDATE film f
+SET like_count = (SELECT COUNT(*) FROM film_like l WHERE l.film_id = f.film_id);
+
+CREATE INDEX IF NOT EXISTS film_like_count_idx ON film (like_count DESC, film_id);
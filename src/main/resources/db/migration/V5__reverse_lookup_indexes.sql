@@ -0,0 +1,13 @@
+-- H2 creates a single-column index for every foreign key on its own, PostgreSQL doesn't.
+-- The composite indexes below are explicit on both and also cover the selected column.
+
+-- Films liked by a user
+CREATE INDEX IF NOT EXISTS film_like_user_idx ON film_like (user_id, film_id);
+
+-- Users who added a user as a friend
+CREATE INDEX IF NOT EXISTS user_friend_friend_idx ON user_friend (friend_id, user_id);
+
+-- Filtering films by genre and MPA
+CREATE INDEX IF NOT EXISTS film_genre_genre_idx ON film_genre (genre_id, film_id);
+
+CREATE INDEX IF NOT EXISTS film_mpa_idx ON film (mpa_id, film_id);
@@ -0,0 +1,4 @@
+-- Incremented by every update of the row, used for optimistic locking and ETags
+ALTER TABLE film ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
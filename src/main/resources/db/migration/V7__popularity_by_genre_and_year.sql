@@ -0,0 +1,15 @@
+-- Filtered leaderboards are read from their own (filter, like_count DESC, film_id) index in rank order,
+-- so a page costs the same for any genre or year regardless of the catalog size.
+-- The genre ranking needs the like count next to genre_id, hence the copy in film_genre.
+
+ALTER TABLE film ADD COLUMN IF NOT EXISTS release_year INTEGER GENERATED ALWAYS AS (EXTRACT(YEAR FROM release_date));
+
+CREATE INDEX IF NOT EXISTS film_year_like_count_idx ON film (release_year, like_count DESC, film_id);
+
+-- Maintained by the same statements that change film.like_count
+ALTER TABLE film_genre ADD COLUMN IF NOT EXISTS like_count INTEGER NOT NULL DEFAULT 0;
+
+UPDATE film_genre fg
+SET like_count = (SELECT f.like_count FROM film f WHERE f.film_id = fg.film_id);
+
+CREATE INDEX IF NOT EXISTS film_genre_like_count_idx ON film_genre (genre_id, like_count DESC, film_id);
@@ -0,0 +1,13 @@
+-- Rows inserted before the sequences existed must not be reused. Flyway applies this once under its lock,
+-- so nodes starting together can't restart a sequence behind blocks another node has already taken.
+-- GREATEST keeps the sequence where it is if it is already past the stored ids.
+
+ALTER SEQUENCE film_id_seq RESTART WITH (
+    SELECT GREATEST(COALESCE(MAX(film_id), 0) + 1,
+                    (SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'FILM_ID_SEQ'))
+    FROM film);
+
+ALTER SEQUENCE user_id_seq RESTART WITH (
+    SELECT GREATEST(COALESCE(MAX(user_id), 0) + 1,
+                    (SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'USER_ID_SEQ'))
+    FROM users);
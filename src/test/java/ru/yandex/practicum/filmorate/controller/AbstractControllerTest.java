@@ -5,14 +5,19 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.RequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import ru.yandex.practicum.filmorate.metrics.DbRoundTripsInterceptor;
 
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @AutoConfigureMockMvc
 public abstract class AbstractControllerTest {
@@ -31,6 +36,13 @@ public abstract class AbstractControllerTest {
                 .accept(MediaType.APPLICATION_JSON);
     }
 
+    protected RequestBuilder getGetRequestBuilder(String path, String ifNoneMatch) {
+        return MockMvcRequestBuilders
+                .get(path)
+                .header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch)
+                .accept(MediaType.APPLICATION_JSON);
+    }
+
     protected <T> RequestBuilder getPostRequestBuilder(String path, T body) throws JsonProcessingException {
         return MockMvcRequestBuilders
                 .post(path)
@@ -47,6 +59,28 @@ public abstract class AbstractControllerTest {
                 .accept(MediaType.APPLICATION_JSON);
     }
 
+    protected <T> RequestBuilder getPutRequestBuilder(String path, T body, String ifMatch)
+            throws JsonProcessingException {
+        return MockMvcRequestBuilders
+                .put(path)
+                .header(HttpHeaders.IF_MATCH, ifMatch)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(body))
+                .accept(MediaType.APPLICATION_JSON);
+    }
+
+    protected RequestBuilder getNdjsonPostRequestBuilder(String path, List<String> lines) {
+        return MockMvcRequestBuilders
+                .post(path)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(String.join("\n", lines))
+                .accept(MediaType.APPLICATION_JSON);
+    }
+
+    protected String toJson(Object value) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(value);
+    }
+
     protected RequestBuilder getDeleteRequestBuilder(String path) throws JsonProcessingException {
         return MockMvcRequestBuilders
                 .delete(path)
@@ -63,4 +97,10 @@ public abstract class AbstractControllerTest {
         String json = result.getResponse().getContentAsString(DEFAULT_ENCODING);
         return objectMapper.readValue(json, typeReference);
     }
+
+    // Statements executed while serving the request, a fixed count catches per-row queries
+    protected void assertStatementCount(int expected, MvcResult result) {
+        Object statements = result.getRequest().getAttribute(DbRoundTripsInterceptor.STATEMENT_COUNT_ATTRIBUTE);
+        assertEquals(expected, statements, "SQL-запросов выполнено при обработке " + result.getRequest().getRequestURI());
+    }
 }
@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.Mpa;
+import ru.yandex.practicum.filmorate.model.user.User;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "filmorate.likes.async.enabled=true",
+        "filmorate.likes.async.flush-interval-ms=50"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class FilmControllerAsyncLikesTest extends AbstractControllerTest {
+
+    @Test
+    public void likeThenGetTop_OwnLikeVisible() throws Exception {
+        Film film = Film.builder()
+                .name("Some name")
+                .releaseDate(LocalDate.now())
+                .duration(120)
+                .description("Some description")
+                .mpa(Mpa.builder().id(1).build())
+                .build();
+        mockMvc.perform(getPostRequestBuilder("/films", film))
+                .andExpect(status().isOk());
+        mockMvc.perform(getPostRequestBuilder("/films", film))
+                .andExpect(status().isOk());
+        User user = User.builder()
+                .email("valid@mail.ru")
+                .login("loginName")
+                .birthday(LocalDate.now().minusYears(40))
+                .build();
+        mockMvc.perform(getPostRequestBuilder("/users", user))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(getPutRequestBuilder("/films/2/like/1", ""))
+                .andExpect(status().isOk());
+        assertEquals(List.of(2L, 1L), getTopIds());
+
+        mockMvc.perform(getDeleteRequestBuilder("/films/2/like/1"))
+                .andExpect(status().isOk());
+        assertEquals(List.of(1L, 2L), getTopIds());
+    }
+
+    @Test
+    public void likeThenGetRecommendations_OwnLikesUsed() throws Exception {
+        Film film = Film.builder()
+                .name("Some name")
+                .releaseDate(LocalDate.now())
+                .duration(120)
+                .description("Some description")
+                .mpa(Mpa.builder().id(1).build())
+                .build();
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(getPostRequestBuilder("/films", film))
+                    .andExpect(status().isOk());
+        }
+        for (String email : List.of("first@mail.ru", "second@mail.ru")) {
+            User user = User.builder()
+                    .email(email)
+                    .login("loginName")
+                    .birthday(LocalDate.now().minusYears(40))
+                    .build();
+            mockMvc.perform(getPostRequestBuilder("/users", user))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(getPutRequestBuilder("/films/1/like/2", ""))
+                .andExpect(status().isOk());
+        mockMvc.perform(getPutRequestBuilder("/films/2/like/2", ""))
+                .andExpect(status().isOk());
+        mockMvc.perform(getPutRequestBuilder("/films/1/like/1", ""))
+                .andExpect(status().isOk());
+        assertEquals(List.of(2L), getRecommendedIds());
+
+        // A film the user has just liked is not recommended back
+        mockMvc.perform(getPutRequestBuilder("/films/2/like/1", ""))
+                .andExpect(status().isOk());
+        assertEquals(List.of(), getRecommendedIds());
+    }
+
+    @Test
+    public void likeMissingFilm_NotFound() throws Exception {
+        mockMvc.perform(getPutRequestBuilder("/films/100/like/1", ""))
+                .andExpect(status().isNotFound());
+    }
+
+    private List<Long> getRecommendedIds() throws Exception {
+        MvcResult result = mockMvc.perform(getGetRequestBuilder("/users/1/recommendations"))
+                .andExpect(status().isOk())
+                .andReturn();
+        return fromResult(result, new TypeReference<List<Film>>() {
+        }).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+    }
+
+    private List<Long> getTopIds() throws Exception {
+        MvcResult result = mockMvc.perform(getGetRequestBuilder("/films/popular"))
+                .andExpect(status().isOk())
+                .andReturn();
+        return fromResult(result, new TypeReference<List<Film>>() {
+        }).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+    }
+}
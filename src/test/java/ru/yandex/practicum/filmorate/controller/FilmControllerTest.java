@@ -1,9 +1,11 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MvcResult;
 import ru.yandex.practicum.filmorate.exception.RestException;
@@ -20,6 +22,8 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -162,6 +166,79 @@ class FilmControllerTest extends AbstractControllerTest {
         assertEquals(createdFilm, updatedFilm);
     }
 
+    @Test
+    public void updateFilmWithIfMatch_VersionCheckedAndETagReturned() throws Exception {
+        MvcResult result = mockMvc.perform(getPostRequestBuilder("/films", film))
+                .andExpect(status().isOk())
+                .andReturn();
+        Film createdFilm = fromResult(result, Film.class);
+
+        mockMvc.perform(getGetRequestBuilder("/films/" + createdFilm.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""));
+
+        createdFilm.setName("New name");
+        mockMvc.perform(getPutRequestBuilder("/films", createdFilm, "\"0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+
+        createdFilm.setName("Lost update");
+        result = mockMvc.perform(getPutRequestBuilder("/films", createdFilm, "\"0\""))
+                .andExpect(status().isConflict())
+                .andReturn();
+        RestException ex = fromResult(result, RestException.class);
+        assertEquals(String.format("Фильм с id = %d был изменен другим запросом", createdFilm.getId()),
+                ex.getMessage());
+
+        result = mockMvc.perform(getGetRequestBuilder("/films/" + createdFilm.getId()))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertEquals("New name", fromResult(result, Film.class).getName());
+    }
+
+    @Test
+    public void updateFilmWithWeakIfMatch_PreconditionFailed() throws Exception {
+        MvcResult result = mockMvc.perform(getPostRequestBuilder("/films", film))
+                .andExpect(status().isOk())
+                .andReturn();
+        Film createdFilm = fromResult(result, Film.class);
+
+        createdFilm.setName("New name");
+        result = mockMvc.perform(getPutRequestBuilder("/films", createdFilm, "W/\"0\""))
+                .andExpect(status().isPreconditionFailed())
+                .andReturn();
+        assertEquals("Слабый ETag W/\"0\" не может быть использован в If-Match",
+                fromResult(result, RestException.class).getMessage());
+
+        result = mockMvc.perform(getGetRequestBuilder("/films/" + createdFilm.getId()))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertEquals(film.getName(), fromResult(result, Film.class).getName());
+    }
+
+    @Test
+    public void getFilmById_ServedFromCacheUntilChanged() throws Exception {
+        mockMvc.perform(getPostRequestBuilder("/films", film))
+                .andExpect(status().isOk());
+        mockMvc.perform(getGetRequestBuilder("/films/1"))
+                .andExpect(status().isOk());
+
+        MvcResult result = mockMvc.perform(getGetRequestBuilder("/films/1"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertStatementCount(0, result);
+
+        film.setId(1L);
+        film.setName("New name");
+        mockMvc.perform(getPutRequestBuilder("/films", film))
+                .andExpect(status().isOk());
+        result = mockMvc.perform(getGetRequestBuilder("/films/1"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertEquals("New name", fromResult(result, Film.class).getName());
+        assertStatementCount(3, result);
+    }
+
     @Test
     public void getAllFilms_ReturnerList() throws Exception {
         MvcResult result = mockMvc.perform(getPostRequestBuilder("/films", film))
@@ -182,6 +259,41 @@ class FilmControllerTest extends AbstractControllerTest {
         assertEquals(2, films.size());
     }
 
+    @Test
+    public void getFilmsPage_ReturnedFilmsAfterCursor() throws Exception {
+        createFilms(5);
+
+        MvcResult result = mockMvc.perform(getGetRequestBuilder("/films?limit=2&after=2"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        List<Film> films = fromResult(result, new TypeReference<List<Film>>() {
+        });
+        assertEquals(List.of(3L, 4L), films.stream().map(Film::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void getFilmsPageWithZeroLimit_ResponseBadRequest() throws Exception {
+        mockMvc.perform(getGetRequestBuilder("/films?limit=0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void streamFilms_ReturnedAllFilms() throws Exception {
+        createFilms(3);
+
+        MvcResult result = mockMvc.perform(getGetRequestBuilder("/films?stream=true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult();
+
+        List<Film> films = fromResult(result, new TypeReference<List<Film>>() {
+        });
+        assertEquals(3, films.size());
+        film.setId(3L);
+        assertEquals(film, films.get(2));
+    }
+
     @Test
     public void getFilmById_ReturnedFilm() throws Exception {
         createFilms(2);
@@ -227,6 +339,16 @@ class FilmControllerTest extends AbstractControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void addLikeTwiceByExistingUser_ResponseOk() throws Exception {
+        createFilms(1);
+        createUsers(1);
+        mockMvc.perform(getPutRequestBuilder("/films/1/like/1", ""))
+                .andExpect(status().isOk());
+        mockMvc.perform(getPutRequestBuilder("/films/1/like/1", ""))
+                .andExpect(status().isOk());
+    }
+
     @Test
     public void removeLike_ResponseOk() throws Exception {
         createFilms(1);
@@ -288,6 +410,32 @@ class FilmControllerTest extends AbstractControllerTest {
         assertEquals(20, films.get(0).getId());
     }
 
+    @Test
+    public void getTopFilmsAfterRemoveLike_RankingUpdated() throws Exception {
+        createFilms(3);
+        createUsers(1);
+        user.setEmail("another@mail.ru");
+        createUsers(1);
+
+        mockMvc.perform(getPutRequestBuilder("/films/3/like/1", ""))
+                .andExpect(status().isOk());
+        mockMvc.perform(getPutRequestBuilder("/films/3/like/2", ""))
+                .andExpect(status().isOk());
+        mockMvc.perform(getPutRequestBuilder("/films/2/like/1", ""))
+                .andExpect(status().isOk());
+        mockMvc.perform(getDeleteRequestBuilder("/films/3/like/1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(getDeleteRequestBuilder("/films/3/like/2"))
+                .andExpect(status().isOk());
+
+        MvcResult result = mockMvc.perform(getGetRequestBuilder("/films/popular?count=3"))
+                .andExpect(status().isOk())
+                .andReturn();
+        List<Film> films = fromResult(result, new TypeReference<List<Film>>() {
+        });
+        assertEquals(List.of(2L, 1L, 3L), films.stream().map(Film::getId).collect(Collectors.toList()));
+    }
+
     @Test
     public void getTopFilmsWithoutZeroCountLimit_ResponseBadRequest() throws Exception {
         createFilms(1);
@@ -296,6 +444,135 @@ class FilmControllerTest extends AbstractControllerTest {
                 .andReturn();
     }
 
+    @Test
+    public void getTopFilmsWithCountOverMaxPageSize_ResponseBadRequest() throws Exception {
+        mockMvc.perform(getGetRequestBuilder("/films/popular?count=1001"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void getTopFilms_StatementCountIndependentOfFilmCount() throws Exception {
+        createFilms(1);
+        MvcResult result = mockMvc.perform(getGetRequestBuilder("/films/popular"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertStatementCount(3, result);
+
+        film.setGenres(Set.of(Genre.builder().id(1).build(), Genre.builder().id(2).build()));
+        createFilms(5);
+        createUsers(1);
+        mockMvc.perform(getPutRequestBuilder("/films/3/like/1", ""))
+                .andExpect(status().isOk());
+
+        result = mockMvc.perform(getGetRequestBuilder("/films/popular"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertStatementCount(3, result);
+    }
+
+    @Test
+    public void getTopFilmsWithIfNoneMatch_NotModifiedUntilRankingChanges() throws Exception {
+        createFilms(2);
+        createUsers(1);
+
+        MvcResult result = mockMvc.perform(getGetRequestBuilder("/films/popular"))
+                .andExpect(status().isOk())
+                .andReturn();
+        String eTag = result.getResponse().getHeader(HttpHeaders.ETAG);
+
+        result = mockMvc.perform(getGetRequestBuilder("/films/popular", eTag))
+                .andExpect(status().isNotModified())
+                .andReturn();
+        assertEquals(0, result.getResponse().getContentLength());
+
+        mockMvc.perform(getPutRequestBuilder("/films/2/like/1", ""))
+                .andExpect(status().isOk());
+        mockMvc.perform(getGetRequestBuilder("/films/popular", eTag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void getGenresWithIfNoneMatch_NotModifiedAndCacheable() throws Exception {
+        MvcResult result = mockMvc.perform(getGetRequestBuilder("/genres"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=86400, public"))
+                .andReturn();
+        String eTag = result.getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(getGetRequestBuilder("/genres", eTag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(getGetRequestBuilder("/mpa/1", eTag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void getRecommendations_FilmsLikedBySimilarUsers() throws Exception {
+        createFilms(3);
+        createUsers(1);
+        user.setEmail("another@mail.ru");
+        createUsers(1);
+
+        mockMvc.perform(getPutRequestBuilder("/films/1/like/1", ""))
+                .andExpect(status().isOk());
+        mockMvc.perform(getPutRequestBuilder("/films/1/like/2", ""))
+                .andExpect(status().isOk());
+        mockMvc.perform(getPutRequestBuilder("/films/3/like/2", ""))
+                .andExpect(status().isOk());
+
+        MvcResult result = mockMvc.perform(getGetRequestBuilder("/users/1/recommendations"))
+                .andExpect(status().isOk())
+                .andReturn();
+        List<Film> films = fromResult(result, new TypeReference<List<Film>>() {
+        });
+        assertEquals(List.of(3L), films.stream().map(Film::getId).collect(Collectors.toList()));
+
+        mockMvc.perform(getDeleteRequestBuilder("/films/3/like/2"))
+                .andExpect(status().isOk());
+        result = mockMvc.perform(getGetRequestBuilder("/users/1/recommendations"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertEquals(0, fromResult(result, new TypeReference<List<Film>>() {
+        }).size());
+
+        mockMvc.perform(getGetRequestBuilder("/users/999/recommendations"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void importFilms_ValidFilmsImportedAndErrorsReported() throws Exception {
+        String validFilm = toJson(film);
+        film.setMpa(Mpa.builder().id(999).build());
+        String invalidMpaFilm = toJson(film);
+        film.setMpa(Mpa.builder().id(1).build());
+        film.setName("");
+        String noNameFilm = toJson(film);
+        MvcResult result = mockMvc.perform(getNdjsonPostRequestBuilder("/films/bulk", List.of(
+                        validFilm,
+                        "{not json",
+                        invalidMpaFilm,
+                        "",
+                        noNameFilm,
+                        validFilm)))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode importResult = fromResult(result, JsonNode.class);
+        assertEquals(2, importResult.get("imported").asInt());
+        assertEquals(3, importResult.get("failed").asInt());
+        assertEquals(List.of(2, 3, 5), importResult.get("errors").findValues("line").stream()
+                .map(JsonNode::asInt)
+                .collect(Collectors.toList()));
+        assertEquals("Название не может быть пустым", importResult.get("errors").get(2).get("message").asText());
+
+        result = mockMvc.perform(getGetRequestBuilder("/films"))
+                .andExpect(status().isOk())
+                .andReturn();
+        List<Film> films = fromResult(result, new TypeReference<>() {
+        });
+        assertEquals(2, films.size());
+        assertEquals(film.getGenres(), films.get(0).getGenres());
+    }
+
     private void createFilms(int repeat) throws Exception {
         while (repeat-- > 0) {
             mockMvc.perform(getPostRequestBuilder("/films", film))
@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -216,6 +217,25 @@ class UserControllerTest extends AbstractControllerTest {
         assertEquals(2, users.size());
     }
 
+    @Test
+    public void getUsersPage_ReturnedUsersAfterCursor() throws Exception {
+        mockMvc.perform(getPostRequestBuilder("/users", user1))
+                .andExpect(status().isOk());
+        mockMvc.perform(getPostRequestBuilder("/users", user2))
+                .andExpect(status().isOk());
+        mockMvc.perform(getPostRequestBuilder("/users", user3))
+                .andExpect(status().isOk());
+
+        MvcResult result = mockMvc.perform(getGetRequestBuilder("/users?limit=5&after=1"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        List<User> users = fromResult(result, new TypeReference<List<User>>() {
+        });
+        assertEquals(2, users.size());
+        assertEquals(2, users.get(0).getId());
+    }
+
     @Test
     public void getUserById_ResponseOk() throws Exception {
         mockMvc.perform(getPostRequestBuilder("/users", user1))
@@ -458,6 +478,42 @@ class UserControllerTest extends AbstractControllerTest {
         assertEquals(2, friendList.get(0).getId());
     }
 
+    @Test
+    public void getFriendSuggestions_FriendsOfFriendsWithoutExistingFriends() throws Exception {
+        mockMvc.perform(getPostRequestBuilder("/users", user1))
+                .andExpect(status().isOk());
+        mockMvc.perform(getPostRequestBuilder("/users", user2))
+                .andExpect(status().isOk());
+        mockMvc.perform(getPostRequestBuilder("/users", user3))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(getPutRequestBuilder("/users/1/friends/2", ""))
+                .andExpect(status().isOk());
+        mockMvc.perform(getPutRequestBuilder("/users/2/friends/3", ""))
+                .andExpect(status().isOk());
+        mockMvc.perform(getPutRequestBuilder("/users/2/friends/1", ""))
+                .andExpect(status().isOk());
+
+        MvcResult result = mockMvc.perform(getGetRequestBuilder("/users/1/friends/suggestions"))
+                .andExpect(status().isOk())
+                .andReturn();
+        List<User> suggestions = fromResult(result, new TypeReference<List<User>>() {
+        });
+        assertEquals(1, suggestions.size());
+        assertEquals(3, suggestions.get(0).getId());
+
+        mockMvc.perform(getPutRequestBuilder("/users/1/friends/3", ""))
+                .andExpect(status().isOk());
+        result = mockMvc.perform(getGetRequestBuilder("/users/1/friends/suggestions"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertEquals(0, fromResult(result, new TypeReference<List<User>>() {
+        }).size());
+
+        mockMvc.perform(getGetRequestBuilder("/users/999/friends/suggestions"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     public void getCommonFriendsWithInvalidFirstUserId_ResponseStatusNotFound() throws Exception {
         mockMvc.perform(getPostRequestBuilder("/users", user1))
@@ -477,4 +533,33 @@ class UserControllerTest extends AbstractControllerTest {
                 .andExpect(status().isNotFound())
                 .andReturn();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void importUsers_DuplicateEmailsReported() throws Exception {
+        mockMvc.perform(getPostRequestBuilder("/users", user1))
+                .andExpect(status().isOk());
+
+        user3.setName(null);
+        MvcResult result = mockMvc.perform(getNdjsonPostRequestBuilder("/users/bulk", List.of(
+                        toJson(user1),
+                        toJson(user2),
+                        toJson(user2),
+                        toJson(user3))))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode importResult = fromResult(result, JsonNode.class);
+        assertEquals(2, importResult.get("imported").asInt());
+        assertEquals(2, importResult.get("failed").asInt());
+        assertEquals("Пользователь с почтой user1@mail.ru уже существует",
+                importResult.get("errors").get(0).get("message").asText());
+        assertEquals(3, importResult.get("errors").get(1).get("line").asInt());
+
+        result = mockMvc.perform(getGetRequestBuilder("/users"))
+                .andExpect(status().isOk())
+                .andReturn();
+        List<User> users = fromResult(result, new TypeReference<>() {
+        });
+        assertEquals(3, users.size());
+        assertEquals("loginName3", users.get(2).getName());
+    }
+}
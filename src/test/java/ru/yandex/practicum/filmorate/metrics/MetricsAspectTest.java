@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.controller.AbstractControllerTest;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.Mpa;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class MetricsAspectTest extends AbstractControllerTest {
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    public void getTopFilms_ServiceStorageAndJdbcTimedAndRoundTripsRecorded() throws Exception {
+        Film film = Film.builder()
+                .name("Some name")
+                .releaseDate(LocalDate.now())
+                .duration(120)
+                .description("Some description")
+                .mpa(Mpa.builder().id(1).build())
+                .build();
+        mockMvc.perform(getPostRequestBuilder("/films", film))
+                .andExpect(status().isOk());
+        mockMvc.perform(getGetRequestBuilder("/films/popular"))
+                .andExpect(status().isOk());
+
+        assertEquals(1, registry.get(MetricsAspect.SERVICE_TIMER)
+                .tags("service", "FilmService", "method", "getTop", "exception", "none")
+                .timer()
+                .count());
+        assertEquals(1, registry.get(MetricsAspect.STORAGE_TIMER)
+                .tags("storage", "DatabaseFilmStorage", "method", "findPopular")
+                .timer()
+                .count());
+        assertTrue(registry.get(MetricsAspect.JDBC_TIMER)
+                .tags("caller", "DatabaseFilmStorage.findPopular")
+                .timer()
+                .count() > 0);
+
+        DistributionSummary roundTrips = registry.get(DbRoundTripsInterceptor.ROUND_TRIPS_SUMMARY)
+                .tags("method", "GET", "uri", "/films/popular")
+                .summary();
+        assertEquals(1, roundTrips.count());
+        assertTrue(roundTrips.totalAmount() > 0);
+    }
+
+    @Test
+    public void getGenres_ReferenceCacheHitsCounted() throws Exception {
+        mockMvc.perform(getGetRequestBuilder("/genres/1"))
+                .andExpect(status().isOk());
+
+        assertTrue(registry.get(ReferenceCacheMetrics.REFERENCE_CACHE_COUNTER)
+                .tags("cache", "genre", "result", "hit")
+                .functionCounter()
+                .count() > 0);
+        assertEquals(0, registry.get(DbRoundTripsInterceptor.ROUND_TRIPS_SUMMARY)
+                .tags("uri", "/genres/{id}")
+                .summary()
+                .max());
+    }
+}
@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.web.util.NestedServletException;
+import ru.yandex.practicum.filmorate.controller.AbstractControllerTest;
+import ru.yandex.practicum.filmorate.exception.SqlBudgetExceededException;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.Mpa;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "filmorate.sql-budget.requests.[/films/popular]=0",
+        "filmorate.sql-budget.transactions.[DatabaseFilmStorage.add]=0"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class SqlBudgetGuardTest extends AbstractControllerTest {
+
+    @Test
+    public void requestOverBudget_Fails() {
+        NestedServletException ex = assertThrows(NestedServletException.class,
+                () -> mockMvc.perform(getGetRequestBuilder("/films/popular")));
+        assertInstanceOf(SqlBudgetExceededException.class, ex.getCause());
+        assertEquals("Запрос GET /films/popular: выполнено SQL-запросов 1 при бюджете 0", ex.getCause().getMessage());
+    }
+
+    @Test
+    public void transactionOverBudget_RolledBack() throws Exception {
+        Film film = Film.builder()
+                .name("Some name")
+                .releaseDate(LocalDate.now())
+                .duration(120)
+                .description("Some description")
+                .mpa(Mpa.builder().id(1).build())
+                .build();
+
+        NestedServletException ex = assertThrows(NestedServletException.class,
+                () -> mockMvc.perform(getPostRequestBuilder("/films", film)));
+        assertInstanceOf(SqlBudgetExceededException.class, ex.getCause());
+        mockMvc.perform(getGetRequestBuilder("/films"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[]"));
+    }
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.QueryTimeoutException;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BulkImporterTest {
+
+    private final BulkImporter importer = new BulkImporter(new ObjectMapper(),
+            Validation.buildDefaultValidatorFactory().getValidator(), 10);
+
+    @Test
+    void saveFailures_ReportedWithoutDatabaseMessages() throws Exception {
+        String lines = "{\"id\": 1}\n{\"id\": 2}\n{\"id\": 3}\n{\"id\": 4}\n";
+
+        BulkImportResult result = importer.importLines(
+                new ByteArrayInputStream(lines.getBytes(StandardCharsets.UTF_8)), Genre.class,
+                genres -> Collections.emptyMap(),
+                genres -> {
+                    if (genres.size() > 1) {
+                        throw new DuplicateKeyException("пакет");
+                    }
+                    switch (genres.get(0).getId()) {
+                        case 1:
+                            throw new DuplicateKeyException("Unique index or primary key violation: PUBLIC.GENRE_PK");
+                        case 2:
+                            throw new DataIntegrityViolationException("Referential integrity constraint violation");
+                        case 3:
+                            throw new QueryTimeoutException("SELECT * FROM genre");
+                        default:
+                    }
+                });
+
+        assertEquals(1, result.getImported());
+        assertEquals(List.of(
+                "Объект с такими уникальными данными уже существует",
+                "Объект ссылается на несуществующие данные",
+                "Не удалось сохранить объект"), result.getErrors().stream()
+                .map(BulkImportResult.LineError::getMessage)
+                .collect(Collectors.toList()));
+    }
+}
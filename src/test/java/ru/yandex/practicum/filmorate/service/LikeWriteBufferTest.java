@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.LikeQueueFullException;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.FilmLike;
+import ru.yandex.practicum.filmorate.storage.film.mem.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.util.LongSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LikeWriteBufferTest {
+
+    private InMemoryFilmStorage storage;
+    private boolean storageFailing;
+
+    @BeforeEach
+    void beforeEach() {
+        storage = new InMemoryFilmStorage() {
+            @Override
+            public void applyLikes(Collection<FilmLike> added, Collection<FilmLike> removed) {
+                if (storageFailing) {
+                    throw new IllegalStateException("База данных недоступна");
+                }
+                super.applyLikes(added, removed);
+            }
+        };
+        storage.add(Film.builder().id(1L).name("Film").build());
+    }
+
+    @Test
+    void changesOfSamePairBeforeFlush_LastOneWritten() {
+        LikeWriteBuffer buffer = buffer(10, 100);
+        buffer.addLike(1, 5);
+        buffer.addLike(1, 6);
+        buffer.removeLike(1, 5);
+        assertTrue(likes().isEmpty());
+
+        buffer.flush();
+        assertEquals(LongSet.of(6), likes());
+    }
+
+    @Test
+    void offerToFullBuffer_FailsAfterTimeout() {
+        LikeWriteBuffer buffer = buffer(1, 50);
+        buffer.addLike(1, 5);
+        buffer.removeLike(1, 5);
+
+        assertThrows(LikeQueueFullException.class, () -> buffer.addLike(1, 6));
+    }
+
+    @Test
+    void offerToFullBuffer_AcceptedAfterFlush() throws Exception {
+        LikeWriteBuffer buffer = buffer(1, 5000);
+        buffer.addLike(1, 5);
+
+        CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> buffer.addLike(1, 6));
+        TimeUnit.MILLISECONDS.sleep(50);
+        assertFalse(blocked.isDone());
+
+        buffer.flush();
+        blocked.get(5, TimeUnit.SECONDS);
+        buffer.flush();
+        buffer.awaitWritten();
+        assertEquals(LongSet.of(5, 6), likes());
+    }
+
+    @Test
+    void failingWrites_RetriedThenDroppedAndCounted() {
+        LikeWriteBuffer buffer = new LikeWriteBuffer(storage, true, 10, 1000, 5000, 2);
+        List<FilmLike> written = new ArrayList<>();
+        buffer.addWriteListener((added, removed) -> written.addAll(added));
+        storageFailing = true;
+        buffer.addLike(1, 5);
+
+        buffer.flush();
+        buffer.flush();
+        assertEquals(0, buffer.getDroppedLikeCount());
+        buffer.flush();
+        assertEquals(3, buffer.getFailedFlushCount());
+        assertEquals(1, buffer.getDroppedLikeCount());
+        assertTrue(written.isEmpty());
+
+        storageFailing = false;
+        buffer.addLike(1, 6);
+        buffer.flush();
+        assertEquals(LongSet.of(6), likes());
+        assertEquals(List.of(new FilmLike(1, 6)), written);
+    }
+
+    @Test
+    void awaitWrittenWhileWritesFail_ReturnsAtOnce() {
+        LikeWriteBuffer buffer = new LikeWriteBuffer(storage, true, 10, 1000, 5000, 3);
+        storageFailing = true;
+        buffer.addLike(1, 5);
+        buffer.flush();
+
+        buffer.addLike(1, 6);
+        long start = System.nanoTime();
+        buffer.awaitWritten();
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private LikeWriteBuffer buffer(int capacity, long timeoutMillis) {
+        return new LikeWriteBuffer(storage, true, capacity, 1000, timeoutMillis, 3);
+    }
+
+    private LongSet likes() {
+        return storage.findById(1L).orElseThrow().getLikes();
+    }
+}
@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private EntityCache<Integer, Genre> cache;
+
+    @BeforeEach
+    void beforeEach() {
+        cache = new EntityCache<>("maximumSize=10", genre -> Genre.builder()
+                .id(genre.getId())
+                .name(genre.getName())
+                .build());
+    }
+
+    @Test
+    void getTwice_LoadedOnceAndCopiesReturned() {
+        Genre first = cache.get(1, this::load).orElseThrow();
+        first.setName("Изменено");
+        Genre second = cache.get(1, this::load).orElseThrow();
+
+        assertEquals("Комедия", second.getName());
+        assertNotSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getCache().stats().hitCount());
+    }
+
+    @Test
+    void getAfterInvalidate_Reloaded() {
+        cache.get(1, this::load);
+        cache.invalidate(1);
+
+        assertFalse(cache.contains(1));
+        cache.get(1, this::load);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void getMissing_NotCached() {
+        assertTrue(cache.get(2, id -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        }).isEmpty());
+
+        assertFalse(cache.contains(2));
+        cache.get(1, this::load);
+        Map<Integer, Genre> present = cache.getAllPresent(List.of(1, 2));
+        assertEquals(Map.of(1, Genre.builder().id(1).name("Комедия").build()), present);
+    }
+
+    @Test
+    void removeWhileCheckingExistence_RemovalWaitsAndIdNotLeftExisting() throws Exception {
+        AtomicBoolean stored = new AtomicBoolean(true);
+        CountDownLatch checked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread checker = new Thread(() -> cache.exists(1, id -> {
+            // The row is read before the removal, the answer is cached after it
+            boolean exists = stored.get();
+            checked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return exists;
+        }));
+        checker.start();
+        checked.await();
+
+        Thread remover = new Thread(() -> {
+            stored.set(false);
+            cache.remove(1);
+        });
+        remover.start();
+        remover.join(200);
+        assertTrue(remover.isAlive());
+
+        release.countDown();
+        checker.join();
+        remover.join();
+        assertFalse(cache.exists(1, id -> stored.get()));
+    }
+
+    private Optional<Genre> load(Integer id) {
+        loads.incrementAndGet();
+        return Optional.of(Genre.builder().id(id).name("Комедия").build());
+    }
+}
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReferenceCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private ReferenceCache<Genre> cache;
+
+    @BeforeEach
+    void beforeEach() {
+        cache = new ReferenceCache<>(() -> {
+            loads.incrementAndGet();
+            return List.of(Genre.builder().id(1).name("Комедия").build(),
+                    Genre.builder().id(3).name("Мультфильм").build());
+        });
+        cache.reload();
+    }
+
+    @Test
+    void findExistingId_HitWithoutReload() {
+        assertEquals("Мультфильм", cache.findById(3).orElseThrow().getName());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void findUnknownId_MissWithoutImmediateReload() {
+        assertTrue(cache.findById(2).isEmpty());
+        assertTrue(cache.findById(100).isEmpty());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void reloadWithSameRows_VersionKept() {
+        DataVersion version = cache.getVersion();
+        cache.reload();
+        assertSame(version, cache.getVersion());
+
+        ReferenceCache<Genre> renamed = new ReferenceCache<>(() -> List.of(Genre.builder().id(1).name("Драма").build(),
+                Genre.builder().id(3).name("Мультфильм").build()));
+        renamed.reload();
+        assertNotEquals(version.getETag(), renamed.getVersion().getETag());
+    }
+
+    @Test
+    void findAll_ReturnsLoadedValues() {
+        assertEquals(2, cache.findAll().size());
+    }
+}
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class LikeGraphTest {
+
+    private LikeGraph graph;
+
+    @BeforeEach
+    void beforeEach() {
+        graph = new LikeGraph();
+        // User 1: films 1, 2, 3; user 2: 1, 2, 3, 4; user 3: 1, 5, 7; user 4: 6
+        graph.load(action -> {
+            action.accept(1, 1);
+            action.accept(2, 1);
+            action.accept(3, 1);
+            action.accept(1, 2);
+            action.accept(2, 2);
+            action.accept(3, 2);
+            action.accept(4, 2);
+            action.accept(1, 3);
+            action.accept(5, 3);
+            action.accept(7, 3);
+            action.accept(6, 4);
+        });
+    }
+
+    @Test
+    void recommendFilms_RankedBySimilarityOfLikers() {
+        // Jaccard similarity with user 2 is 3/4, with user 3 is 1/5, user 4 has no common films
+        assertArrayEquals(new long[]{4, 5, 7}, graph.recommendFilms(1, 10));
+        assertArrayEquals(new long[]{4}, graph.recommendFilms(1, 1));
+        assertArrayEquals(new long[0], graph.recommendFilms(4, 10));
+        assertArrayEquals(new long[0], graph.recommendFilms(100, 10));
+    }
+
+    @Test
+    void changeLikes_RecommendationsFollow() {
+        graph.removeLike(4, 2);
+        graph.addLike(5, 2);
+        graph.addLike(4, 1);
+
+        assertArrayEquals(new long[]{5, 7}, graph.recommendFilms(1, 10));
+        assertArrayEquals(new long[]{4, 7}, graph.recommendFilms(2, 10));
+    }
+}
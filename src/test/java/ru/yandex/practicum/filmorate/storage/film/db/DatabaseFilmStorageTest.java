@@ -0,0 +1,151 @@
+package ru.yandex.practicum.filmorate.storage.film.db;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.FilmLike;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.model.film.Mpa;
+import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.storage.user.db.DatabaseUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class DatabaseFilmStorageTest {
+
+    @Autowired
+    private DatabaseFilmStorage filmStorage;
+
+    @Autowired
+    private DatabaseUserStorage userStorage;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void beforeEach() {
+        for (long id = 1; id <= 3; id++) {
+            filmStorage.add(Film.builder()
+                    .id(id)
+                    .name("Film " + id)
+                    .description("Description")
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(100)
+                    .mpa(Mpa.builder().id(1).build())
+                    .build());
+            userStorage.add(User.builder()
+                    .id(id)
+                    .email("user" + id + "@mail.ru")
+                    .login("user" + id)
+                    .name("User " + id)
+                    .build());
+        }
+    }
+
+    @Test
+    void addAndRemoveLike_LikeCountMaintained() {
+        filmStorage.addLike(2L, 1L);
+        filmStorage.addLike(2L, 2L);
+        filmStorage.addLike(2L, 2L);
+        filmStorage.addLike(3L, 1L);
+        filmStorage.removeLike(3L, 1L);
+        filmStorage.removeLike(3L, 1L);
+
+        assertEquals(2, likeCount(2L));
+        assertEquals(0, likeCount(3L));
+        assertEquals(List.of(2L, 1L, 3L), popularIds());
+    }
+
+    @Test
+    void applyLikes_OnlyChangedLikesCounted() {
+        filmStorage.addLike(3L, 1L);
+
+        filmStorage.applyLikes(
+                List.of(new FilmLike(2L, 1L), new FilmLike(2L, 2L), new FilmLike(3L, 2L), new FilmLike(9L, 1L)),
+                List.of(new FilmLike(3L, 1L), new FilmLike(1L, 1L)));
+
+        assertEquals(2, likeCount(2L));
+        assertEquals(1, likeCount(3L));
+        assertEquals(0, likeCount(1L));
+        assertEquals(0, filmStorage.reconcileLikeCounts());
+    }
+
+    @Test
+    void reconcileLikeCounts_OnlyDivergedFilmsRepaired() {
+        filmStorage.addLike(1L, 1L);
+        jdbcTemplate.update("INSERT INTO film_like (film_id, user_id) VALUES (3, 1), (3, 2)");
+        jdbcTemplate.update("UPDATE film SET like_count = 10 WHERE film_id = 2");
+
+        assertEquals(2, filmStorage.reconcileLikeCounts());
+        assertEquals(1, likeCount(1L));
+        assertEquals(0, likeCount(2L));
+        assertEquals(2, likeCount(3L));
+        assertEquals(List.of(3L, 1L, 2L), popularIds());
+    }
+
+    @Test
+    void findPopularByGenreAndYear_ServedFromRankedCopies() {
+        Film second = filmStorage.findById(2L).orElseThrow();
+        second.setReleaseDate(LocalDate.of(2010, 5, 1));
+        second.setGenres(new TreeSet<>(Set.of(Genre.builder().id(1).build())));
+        filmStorage.update(second);
+        filmStorage.addLike(2L, 1L);
+        filmStorage.addLike(3L, 1L);
+        filmStorage.addLike(3L, 2L);
+        Film third = filmStorage.findById(3L).orElseThrow();
+        third.setGenres(new TreeSet<>(Set.of(Genre.builder().id(1).build(), Genre.builder().id(2).build())));
+        filmStorage.update(third);
+
+        assertEquals(List.of(3L, 2L), popularIds(1, null, 0));
+        assertEquals(List.of(3L, 1L), popularIds(null, 2000, 0));
+        assertEquals(List.of(2L), popularIds(1, 2010, 0));
+        assertEquals(List.of(2L), popularIds(1, null, 1));
+        assertEquals(List.of(), popularIds(6, null, 0));
+
+        jdbcTemplate.update("UPDATE film_genre SET like_count = 10 WHERE film_id = 2");
+        filmStorage.reconcileLikeCounts();
+        assertEquals(List.of(3L, 2L), popularIds(1, null, 0));
+    }
+
+    @Test
+    void updateWithStaleVersion_Conflict() {
+        Film first = filmStorage.findById(1L).orElseThrow();
+        Film second = filmStorage.findById(1L).orElseThrow();
+
+        first.setName("First");
+        filmStorage.update(first);
+        assertEquals(1, first.getVersion());
+
+        second.setName("Second");
+        assertThrows(OptimisticLockingFailureException.class, () -> filmStorage.update(second));
+        assertEquals("First", filmStorage.findById(1L).orElseThrow().getName());
+    }
+
+    private int likeCount(Long filmId) {
+        return jdbcTemplate.queryForObject("SELECT like_count FROM film WHERE film_id = ?", Integer.class, filmId);
+    }
+
+    private List<Long> popularIds() {
+        return filmStorage.findPopular(null, null, 0, 10).stream().map(Film::getId).collect(Collectors.toList());
+    }
+
+    private List<Long> popularIds(Integer genreId, Integer year, int offset) {
+        return filmStorage.findPopular(genreId, year, offset, 10).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,204 @@
+package ru.yandex.practicum.filmorate.storage.film.mem;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.util.LongSet;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryFilmStorageTest {
+
+    private static final int THREADS = 8;
+
+    private InMemoryFilmStorage storage;
+
+    @BeforeEach
+    void beforeEach() {
+        storage = new InMemoryFilmStorage();
+    }
+
+    @Test
+    void addSameIdConcurrently_OnlyOneAdded() throws Exception {
+        List<Boolean> results = runConcurrently(THREADS, i -> {
+            try {
+                storage.add(Film.builder().id(1L).name("Film " + i).build());
+                return true;
+            } catch (IllegalArgumentException ex) {
+                return false;
+            }
+        });
+
+        assertEquals(1, results.stream().filter(Boolean::booleanValue).count());
+        assertEquals(1, storage.findAll().size());
+    }
+
+    @Test
+    void addLikesConcurrently_NoLikeLost() throws Exception {
+        storage.add(Film.builder().id(1L).name("Film").build());
+        storage.add(Film.builder().id(2L).name("Other film").build());
+
+        runConcurrently(1000, i -> storage.addLike(1L, (long) i));
+
+        assertEquals(1000, storage.findById(1L).orElseThrow().getLikes().size());
+        assertEquals(List.of(1L, 2L), storage.findPopular(null, null, 0, 2).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void findPopularByGenreAndYear_RankingsFollowChanges() {
+        Genre comedy = Genre.builder().id(1).build();
+        Genre drama = Genre.builder().id(2).build();
+        storage.add(film(1L, 2000, comedy));
+        storage.add(film(2L, 2010, comedy, drama));
+        storage.add(film(3L, 2010, drama));
+        storage.addLike(3L, 1L);
+        storage.addLike(3L, 2L);
+        storage.addLike(2L, 1L);
+
+        assertEquals(List.of(2L, 1L), popularIds(1, null, 0));
+        assertEquals(List.of(3L, 2L), popularIds(null, 2010, 0));
+        assertEquals(List.of(2L), popularIds(2, 2010, 1));
+
+        // The service changes the copy it has read and passes it to update
+        Film second = storage.findById(2L).orElseThrow();
+        second.setReleaseDate(LocalDate.of(2000, 1, 1));
+        second.setGenres(new TreeSet<>(Set.of(drama)));
+        storage.update(second);
+
+        assertEquals(List.of(1L), popularIds(1, null, 0));
+        assertEquals(List.of(3L), popularIds(null, 2010, 0));
+        assertEquals(List.of(2L), popularIds(2, 2000, 0));
+    }
+
+    @Test
+    void addAndUpdate_CallerChangesNotStored() {
+        Film film = Film.builder().id(1L).name("Film").build();
+        storage.add(film);
+        film.setName("Changed after add");
+        assertEquals("Film", storage.findById(1L).orElseThrow().getName());
+
+        Film updated = Film.builder().id(1L).name("Updated").build();
+        storage.update(updated);
+        updated.setName("Changed after update");
+        assertEquals("Updated", storage.findById(1L).orElseThrow().getName());
+        assertEquals(1, updated.getVersion());
+    }
+
+    @Test
+    void updateFromSameVersion_SecondUpdateConflicts() {
+        storage.add(Film.builder().id(1L).name("Film").build());
+        Film first = storage.findById(1L).orElseThrow();
+        Film second = storage.findById(1L).orElseThrow();
+
+        first.setName("First");
+        assertEquals("Film", storage.findById(1L).orElseThrow().getName());
+        storage.update(first);
+        second.setName("Second");
+
+        assertThrows(OptimisticLockingFailureException.class, () -> storage.update(second));
+        Film stored = storage.findById(1L).orElseThrow();
+        assertEquals("First", stored.getName());
+        assertEquals(1, stored.getVersion());
+    }
+
+    @Test
+    void updateAfterLikeFromCopyReadBefore_LikeKept() {
+        storage.add(Film.builder().id(1L).name("Film").build());
+        Film edited = storage.findById(1L).orElseThrow();
+
+        assertTrue(storage.addLike(1L, 5L));
+        edited.setName("Edited");
+        storage.update(edited);
+
+        Film stored = storage.findById(1L).orElseThrow();
+        assertEquals("Edited", stored.getName());
+        assertEquals(LongSet.of(5), stored.getLikes());
+        assertEquals(List.of(1), storage.findPopular(null, null, 0, 1).stream()
+                .map(film -> film.getLikes().size())
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void updateAfterLike_RankingKeepsStoredLikeCount() {
+        storage.add(Film.builder().id(1L).name("Film").build());
+        storage.add(Film.builder().id(2L).name("Other film").build());
+        Film edited = storage.findById(2L).orElseThrow();
+
+        storage.addLike(2L, 5L);
+        edited.setName("Edited");
+        storage.update(edited);
+
+        assertEquals(List.of(2L, 1L), popularIds(null, null, 0));
+    }
+
+    @Test
+    void streamAllWhileAdding_NoConcurrentModification() throws Exception {
+        LongStream.rangeClosed(1, 1000).forEach(id -> storage.add(Film.builder().id(id).build()));
+
+        List<Boolean> results = runConcurrently(THREADS, i -> {
+            if (i % 2 == 0) {
+                LongStream.rangeClosed(1, 1000)
+                        .forEach(id -> storage.add(Film.builder().id((i + 1) * 10_000L + id).build()));
+            } else {
+                storage.streamAll(film -> {
+                });
+            }
+            return true;
+        });
+
+        assertEquals(THREADS, results.size());
+    }
+
+    private Film film(long id, int year, Genre... genres) {
+        return Film.builder()
+                .id(id)
+                .name("Film " + id)
+                .releaseDate(LocalDate.of(year, 1, 1))
+                .genres(new TreeSet<>(Set.of(genres)))
+                .build();
+    }
+
+    private List<Long> popularIds(Integer genreId, Integer year, int offset) {
+        return storage.findPopular(genreId, year, offset, 10).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+    }
+
+    private <T> List<T> runConcurrently(int tasks, IntFunction<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < tasks; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.apply(index);
+                }));
+            }
+            start.countDown();
+
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
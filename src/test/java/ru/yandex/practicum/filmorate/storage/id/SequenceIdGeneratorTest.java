@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.storage.id;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SequenceIdGeneratorTest {
+
+    private static final int BLOCK_SIZE = 50;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void beforeEach() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "password"));
+        jdbcTemplate.execute("CREATE TABLE film (film_id BIGINT PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE SEQUENCE film_id_seq START WITH 1 INCREMENT BY " + BLOCK_SIZE);
+        jdbcTemplate.execute("CREATE TABLE users (user_id BIGINT PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE SEQUENCE user_id_seq START WITH 1 INCREMENT BY " + BLOCK_SIZE);
+    }
+
+    @Test
+    void nextId_SequentialInsideBlock() {
+        IdGenerator generator = createGenerator();
+        assertEquals(1, generator.nextId());
+        assertEquals(2, generator.nextId());
+    }
+
+    @Test
+    void nextId_ExistingRows_StartsAfterMaxId() {
+        jdbcTemplate.update("INSERT INTO film (film_id) VALUES (120)");
+        restartSequences();
+        assertEquals(121, createGenerator().nextId());
+    }
+
+    @Test
+    void nextId_SequenceAheadOfRows_MigrationKeepsIt() {
+        long first = createGenerator().nextId();
+        jdbcTemplate.update("INSERT INTO film (film_id) VALUES (?)", first);
+        restartSequences();
+        assertTrue(createGenerator().nextId() >= first + BLOCK_SIZE);
+    }
+
+    @Test
+    void nextId_Restart_NoReuseOfAllocatedBlock() {
+        long first = createGenerator().nextId();
+        long afterRestart = createGenerator().nextId();
+        assertTrue(afterRestart >= first + BLOCK_SIZE);
+    }
+
+    @Test
+    void nextId_ConcurrentCallsFromSeveralNodes_UniqueIds() throws Exception {
+        List<IdGenerator> nodes = List.of(createGenerator(), createGenerator());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            IdGenerator generator = nodes.get(i % nodes.size());
+            futures.add(executor.submit(() -> {
+                List<Long> ids = new ArrayList<>();
+                for (int j = 0; j < 500; j++) {
+                    ids.add(generator.nextId());
+                }
+                return ids;
+            }));
+        }
+
+        Set<Long> allIds = new HashSet<>();
+        for (Future<List<Long>> future : futures) {
+            allIds.addAll(future.get());
+        }
+        executor.shutdown();
+        assertEquals(8 * 500, allIds.size());
+    }
+
+    private void restartSequences() {
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V8__id_sequences_after_existing_rows.sql"))
+                .execute(jdbcTemplate.getDataSource());
+    }
+
+    private IdGenerator createGenerator() {
+        return new SequenceIdGenerator(jdbcTemplate, "film_id_seq", BLOCK_SIZE);
+    }
+}
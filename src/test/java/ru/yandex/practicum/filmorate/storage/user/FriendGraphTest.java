@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.util.LongSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FriendGraphTest {
+
+    private FriendGraph graph;
+
+    @BeforeEach
+    void beforeEach() {
+        graph = new FriendGraph();
+        // 1 -> 2, 3, 4; 2 -> 5, 6; 3 -> 1, 5, 6; 4 -> 6, 7
+        graph.load(action -> {
+            action.accept(1, 2);
+            action.accept(1, 3);
+            action.accept(1, 4);
+            action.accept(2, 5);
+            action.accept(2, 6);
+            action.accept(3, 1);
+            action.accept(3, 5);
+            action.accept(3, 6);
+            action.accept(4, 6);
+            action.accept(4, 7);
+        });
+    }
+
+    @Test
+    void suggestFriends_RankedByMutualFriendsThenId() {
+        assertArrayEquals(new long[]{6, 5, 7}, graph.suggestFriends(1, 10));
+        assertArrayEquals(new long[]{6, 5}, graph.suggestFriends(1, 2));
+        assertArrayEquals(new long[0], graph.suggestFriends(7, 10));
+        assertArrayEquals(new long[0], graph.suggestFriends(100, 10));
+    }
+
+    @Test
+    void changeFriendships_SuggestionsFollowOverlay() {
+        graph.addFriendship(1, 6);
+        graph.removeFriendship(4, 7);
+        graph.addFriendship(2, 8);
+
+        assertEquals(LongSet.of(2, 3, 4, 6), graph.findFriendIds(1));
+        assertArrayEquals(new long[]{5, 8}, graph.suggestFriends(1, 10));
+    }
+
+    @Test
+    void changeManyFriendships_OverlayCompactedWithoutLosingEdges() {
+        for (long userId = 10; userId < 10_010; userId++) {
+            graph.addFriendship(userId, 1);
+        }
+        graph.removeFriendship(3, 1);
+
+        assertEquals(LongSet.of(2, 3, 4), graph.findFriendIds(1));
+        assertEquals(LongSet.of(5, 6), graph.findFriendIds(3));
+        assertEquals(LongSet.of(1), graph.findFriendIds(10_009));
+        assertArrayEquals(new long[]{2, 3, 4}, graph.suggestFriends(10, 10));
+    }
+}
@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.storage.user.mem;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import ru.yandex.practicum.filmorate.model.user.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryUserStorageTest {
+
+    private InMemoryUserStorage storage;
+
+    @BeforeEach
+    void beforeEach() {
+        storage = new InMemoryUserStorage();
+    }
+
+    @Test
+    void findByEmail_FoundByIndex() {
+        storage.add(user(1L, "user1@mail.ru"));
+        storage.add(user(2L, "user2@mail.ru"));
+
+        assertEquals(2L, storage.findByEmail("user2@mail.ru").orElseThrow().getId());
+        assertTrue(storage.findByEmail("user3@mail.ru").isEmpty());
+        assertEquals(Set.of("user1@mail.ru"), storage.findExistingEmails(List.of("user1@mail.ru", "user3@mail.ru")));
+    }
+
+    @Test
+    void addDuplicateEmail_DuplicateKeyException() {
+        storage.add(user(1L, "user1@mail.ru"));
+
+        assertThrows(DuplicateKeyException.class, () -> storage.add(user(2L, "user1@mail.ru")));
+        assertTrue(storage.findById(2L).isEmpty());
+    }
+
+    @Test
+    void updateEmail_OldEmailReleased() {
+        storage.add(user(1L, "user1@mail.ru"));
+        storage.update(user(1L, "new@mail.ru"));
+        storage.add(user(2L, "user1@mail.ru"));
+
+        assertEquals(1L, storage.findByEmail("new@mail.ru").orElseThrow().getId());
+        assertEquals(2L, storage.findByEmail("user1@mail.ru").orElseThrow().getId());
+        assertThrows(DuplicateKeyException.class, () -> storage.update(user(2L, "new@mail.ru")));
+        assertEquals(2L, storage.findByEmail("user1@mail.ru").orElseThrow().getId());
+    }
+
+    @Test
+    void updateAfterFriendshipFromCopyReadBefore_FriendshipKept() {
+        storage.add(user(1L, "user1@mail.ru"));
+        storage.add(user(2L, "user2@mail.ru"));
+        User edited = storage.findById(1L).orElseThrow();
+
+        assertTrue(storage.addFriendship(1L, 2L));
+        edited.setName("Edited");
+        storage.update(edited);
+
+        User stored = storage.findById(1L).orElseThrow();
+        assertEquals("Edited", stored.getName());
+        assertEquals(List.of(2L), storage.findFriends(1L).stream().map(User::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void removeById_EmailReleased() {
+        storage.add(user(1L, "user1@mail.ru"));
+        storage.removeById(1L);
+
+        assertTrue(storage.findByEmail("user1@mail.ru").isEmpty());
+        storage.add(user(2L, "user1@mail.ru"));
+        assertEquals(2L, storage.findByEmail("user1@mail.ru").orElseThrow().getId());
+    }
+
+    @Test
+    void addSameEmailConcurrently_OnlyOneAdded() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (long id = 1; id <= threads; id++) {
+                User user = user(id, "same@mail.ru");
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        storage.add(user);
+                        return true;
+                    } catch (DuplicateKeyException ex) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int added = 0;
+            for (Future<Boolean> future : futures) {
+                added += future.get(10, TimeUnit.SECONDS) ? 1 : 0;
+            }
+            assertEquals(1, added);
+            assertEquals(1, storage.findAll().size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private User user(Long id, String email) {
+        return User.builder()
+                .id(id)
+                .email(email)
+                .login("login" + id)
+                .build();
+    }
+}
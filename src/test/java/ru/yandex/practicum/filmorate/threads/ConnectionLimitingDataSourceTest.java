@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.threads;
+
+import org.h2.Driver;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ConnectionLimitingDataSourceTest {
+
+    private final ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(
+            new SimpleDriverDataSource(new Driver(), "jdbc:h2:mem:limit"), 2, 50);
+
+    @Test
+    public void getConnection_OverLimit_TimesOut() throws Exception {
+        try (Connection first = dataSource.getConnection(); Connection second = dataSource.getConnection()) {
+            SQLTransientConnectionException ex = assertThrows(SQLTransientConnectionException.class,
+                    dataSource::getConnection);
+            assertEquals("Нет свободного соединения с базой данных за 50 мс", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void close_ReturnsPermitOnce() throws Exception {
+        Connection connection = dataSource.getConnection();
+        connection.close();
+        connection.close();
+
+        try (Connection first = dataSource.getConnection(); Connection second = dataSource.getConnection()) {
+            assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        }
+    }
+}
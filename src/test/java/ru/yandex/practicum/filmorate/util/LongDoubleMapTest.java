@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LongDoubleMapTest {
+
+    @Test
+    void addBeyondInitialCapacity_AllSumsKept() {
+        LongDoubleMap map = new LongDoubleMap(4);
+        for (long key = -500; key < 500; key++) {
+            map.add(key * 1024, 1);
+            map.add(key * 1024, 0.5);
+        }
+
+        assertEquals(1000, map.size());
+        assertEquals(1.5, map.get(-500 * 1024));
+        assertEquals(1.5, map.get(499 * 1024));
+        assertEquals(0, map.get(1));
+
+        Map<Long, Double> entries = new HashMap<>();
+        map.forEach(entries::put);
+        assertEquals(1000, entries.size());
+    }
+}
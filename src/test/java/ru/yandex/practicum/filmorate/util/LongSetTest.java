@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongSetTest {
+
+    @Test
+    void build_SortedWithoutDuplicates() {
+        LongSet set = LongSet.builder().addAll(5, 1, 3, 5, 1).build();
+
+        assertArrayEquals(new long[]{1, 3, 5}, set.toArray());
+        assertTrue(set.contains(3));
+        assertFalse(set.contains(2));
+    }
+
+    @Test
+    void withAndWithout_NewSetReturnedOnlyOnChange() {
+        LongSet set = LongSet.of(1, 3);
+
+        LongSet added = set.with(2);
+        assertArrayEquals(new long[]{1, 2, 3}, added.toArray());
+        assertArrayEquals(new long[]{1, 3}, set.toArray());
+        assertSame(added, added.with(2));
+
+        LongSet removed = added.without(1);
+        assertArrayEquals(new long[]{2, 3}, removed.toArray());
+        assertSame(removed, removed.without(1));
+        assertSame(LongSet.empty(), LongSet.of(7).without(7));
+    }
+
+    @Test
+    void intersect_CommonElements() {
+        LongSet first = LongSet.of(1, 2, 4, 8, 16);
+        LongSet second = LongSet.of(2, 3, 4, 16, 32);
+
+        assertEquals(LongSet.of(2, 4, 16), first.intersect(second));
+        assertEquals(3, first.intersectionSize(second));
+        assertTrue(first.intersect(LongSet.of(5)).isEmpty());
+    }
+}